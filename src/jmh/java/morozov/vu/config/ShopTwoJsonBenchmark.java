@@ -0,0 +1,64 @@
+package morozov.vu.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.util.concurrent.TimeUnit;
+import morozov.vu.domain.ShopTwo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JSON (de)serialization of {@link ShopTwo} by an {@link ObjectMapper} holding the modules of
+ * {@link JacksonConfiguration}, as the one of the REST resources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShopTwoJsonBenchmark {
+
+    private ObjectWriter writer;
+
+    private ObjectReader reader;
+
+    private ShopTwo shopTwo;
+
+    private byte[] json;
+
+    @Setup
+    public void setup() throws Exception {
+        JacksonConfiguration configuration = new JacksonConfiguration();
+        ObjectMapper mapper = new ObjectMapper()
+            .registerModule(configuration.javaTimeModule())
+            .registerModule(configuration.jdk8TimeModule())
+            .registerModule(configuration.hibernate5Module())
+            .registerModule(configuration.problemModule())
+            .registerModule(configuration.constraintViolationProblemModule());
+        writer = mapper.writerFor(ShopTwo.class);
+        reader = mapper.readerFor(ShopTwo.class);
+        shopTwo = new ShopTwo().shopName("shop").owner("owner").category("category").email("shop@localhost");
+        shopTwo.setId(1042L);
+        json = writer.writeValueAsBytes(shopTwo);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return writer.writeValueAsBytes(shopTwo);
+    }
+
+    @Benchmark
+    public ShopTwo deserialize() throws Exception {
+        return reader.readValue(json);
+    }
+}
@@ -0,0 +1,69 @@
+package morozov.vu.domain;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ShopTwo#equals(Object)} and {@link ShopTwo#hashCode()} in collections: the hash code is the same for all the
+ * entities, so that it does not change when the id is assigned, which makes hash-based collections linear.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShopTwoCollectionsBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    private int size;
+
+    private List<ShopTwo> shopTwos;
+
+    private Set<ShopTwo> shopTwoSet;
+
+    private ShopTwo last;
+
+    @Setup
+    public void setup() {
+        shopTwos = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            ShopTwo shopTwo = new ShopTwo().shopName("shop-" + id);
+            shopTwo.setId(id);
+            shopTwos.add(shopTwo);
+        }
+        shopTwoSet = new HashSet<>(shopTwos);
+        ShopTwo copy = new ShopTwo();
+        copy.setId((long) size);
+        last = copy;
+    }
+
+    @Benchmark
+    public Set<ShopTwo> buildHashSet() {
+        return new HashSet<>(shopTwos);
+    }
+
+    @Benchmark
+    public boolean hashSetContains() {
+        return shopTwoSet.contains(last);
+    }
+
+    @Benchmark
+    public boolean listContains() {
+        return shopTwos.contains(last);
+    }
+}
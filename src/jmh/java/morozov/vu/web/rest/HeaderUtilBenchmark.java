@@ -0,0 +1,47 @@
+package morozov.vu.web.rest;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import tech.jhipster.web.util.HeaderUtil;
+
+/**
+ * Alert headers added by {@link ShopTwoResource} to its responses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderUtilBenchmark {
+
+    private static final String APPLICATION_NAME = "consumerApp";
+
+    private static final String ENTITY_NAME = "consumerShopTwo";
+
+    private final String id = "1042";
+
+    @Benchmark
+    public HttpHeaders createEntityCreationAlert() {
+        return HeaderUtil.createEntityCreationAlert(APPLICATION_NAME, true, ENTITY_NAME, id);
+    }
+
+    @Benchmark
+    public HttpHeaders createEntityUpdateAlert() {
+        return HeaderUtil.createEntityUpdateAlert(APPLICATION_NAME, true, ENTITY_NAME, id);
+    }
+
+    @Benchmark
+    public HttpHeaders createEntityDeletionAlert() {
+        return HeaderUtil.createEntityDeletionAlert(APPLICATION_NAME, true, ENTITY_NAME, id);
+    }
+}
@@ -1,5 +1,9 @@
 package morozov.vu.config;
 
+import com.hazelcast.config.EvictionPolicy;
+import com.hazelcast.config.InMemoryFormat;
+import java.util.ArrayList;
+import java.util.List;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -9,4 +13,167 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  * See {@link tech.jhipster.config.JHipsterProperties} for a good example.
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
-public class ApplicationProperties {}
+public class ApplicationProperties {
+
+    private final Bulk bulk = new Bulk();
+
+    private final Cache cache = new Cache();
+
+    public Bulk getBulk() {
+        return bulk;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    /**
+     * Settings of the ShopTwo bulk endpoints.
+     */
+    public static class Bulk {
+
+        /**
+         * Number of items read, persisted and committed together; bounds the memory used by a request.
+         */
+        private int chunkSize = 500;
+
+        /**
+         * Number of items of an import read, loaded and committed together.
+         */
+        private int importChunkSize = 10_000;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public int getImportChunkSize() {
+            return importChunkSize;
+        }
+
+        public void setImportChunkSize(int importChunkSize) {
+            this.importChunkSize = importChunkSize;
+        }
+    }
+
+    /**
+     * Settings of the Hazelcast maps backing the caches.
+     */
+    public static class Cache {
+
+        /**
+         * Maps which keep a copy of the entries they read in-process, so that reading an entry owned by another
+         * member of the cluster does not cost a network round trip.
+         */
+        private List<NearCache> nearCaches = new ArrayList<>();
+
+        public List<NearCache> getNearCaches() {
+            return nearCaches;
+        }
+
+        public void setNearCaches(List<NearCache> nearCaches) {
+            this.nearCaches = nearCaches;
+        }
+    }
+
+    /**
+     * Near cache of one Hazelcast map.
+     */
+    public static class NearCache {
+
+        /**
+         * Name of the map, which is also the name of the Spring cache.
+         */
+        private String mapName;
+
+        /**
+         * OBJECT keeps deserialized entries, which is faster to read but lets callers see each other's changes to a
+         * returned instance; BINARY keeps serialized entries and deserializes them on each read.
+         */
+        private InMemoryFormat inMemoryFormat = InMemoryFormat.BINARY;
+
+        /**
+         * Drop an entry from the near cache when it is updated or removed in the cluster.
+         */
+        private boolean invalidateOnChange = true;
+
+        /**
+         * Maximum number of entries kept in the near cache of each member.
+         */
+        private int maxSize = 10000;
+
+        /**
+         * Entries evicted once the near cache is full.
+         */
+        private EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
+
+        /**
+         * Maximum time an entry stays in the near cache, 0 for no limit.
+         */
+        private int timeToLiveSeconds = 0;
+
+        /**
+         * Maximum time an entry stays in the near cache without being read, 0 for no limit.
+         */
+        private int maxIdleSeconds = 0;
+
+        public String getMapName() {
+            return mapName;
+        }
+
+        public void setMapName(String mapName) {
+            this.mapName = mapName;
+        }
+
+        public InMemoryFormat getInMemoryFormat() {
+            return inMemoryFormat;
+        }
+
+        public void setInMemoryFormat(InMemoryFormat inMemoryFormat) {
+            this.inMemoryFormat = inMemoryFormat;
+        }
+
+        public boolean isInvalidateOnChange() {
+            return invalidateOnChange;
+        }
+
+        public void setInvalidateOnChange(boolean invalidateOnChange) {
+            this.invalidateOnChange = invalidateOnChange;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public EvictionPolicy getEvictionPolicy() {
+            return evictionPolicy;
+        }
+
+        public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+            this.evictionPolicy = evictionPolicy;
+        }
+
+        public int getTimeToLiveSeconds() {
+            return timeToLiveSeconds;
+        }
+
+        public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+            this.timeToLiveSeconds = timeToLiveSeconds;
+        }
+
+        public int getMaxIdleSeconds() {
+            return maxIdleSeconds;
+        }
+
+        public void setMaxIdleSeconds(int maxIdleSeconds) {
+            this.maxIdleSeconds = maxIdleSeconds;
+        }
+    }
+}
@@ -13,6 +13,7 @@ import org.springframework.boot.info.GitProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.client.serviceregistry.Registration;
@@ -57,14 +58,18 @@ public class CacheConfiguration {
         Hazelcast.shutdownAll();
     }
 
+    /**
+     * The caches defer their puts and evictions to the commit of the current transaction, if any: an entry evicted
+     * before the commit could be read again from the database, in its old state, and cached until the next write.
+     */
     @Bean
     public CacheManager cacheManager(HazelcastInstance hazelcastInstance) {
         log.debug("Starting HazelcastCacheManager");
-        return new com.hazelcast.spring.cache.HazelcastCacheManager(hazelcastInstance);
+        return new TransactionAwareCacheManagerProxy(new com.hazelcast.spring.cache.HazelcastCacheManager(hazelcastInstance));
     }
 
     @Bean
-    public HazelcastInstance hazelcastInstance(JHipsterProperties jHipsterProperties) {
+    public HazelcastInstance hazelcastInstance(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
         log.debug("Configuring Hazelcast");
         HazelcastInstance hazelCastInstance = Hazelcast.getHazelcastInstanceByName("consumer");
         if (hazelCastInstance != null) {
@@ -106,6 +111,10 @@ public class CacheConfiguration {
         }
         config.setManagementCenterConfig(new ManagementCenterConfig());
         config.addMapConfig(initializeDefaultMapConfig(jHipsterProperties));
+        config.addMapConfig(initializeDomainMapConfig(jHipsterProperties));
+        for (ApplicationProperties.NearCache nearCache : applicationProperties.getCache().getNearCaches()) {
+            config.addMapConfig(initializeNearCachedMapConfig(config, nearCache));
+        }
         return Hazelcast.newHazelcastInstance(config);
     }
 
@@ -145,6 +154,23 @@ public class CacheConfiguration {
         return mapConfig;
     }
 
+    private MapConfig initializeNearCachedMapConfig(Config config, ApplicationProperties.NearCache nearCache) {
+        // Keep the settings of the map config the name matches (TTL of the domain maps, ...) and add the near cache
+        MapConfig mapConfig = new MapConfig(config.findMapConfig(nearCache.getMapName())).setName(nearCache.getMapName());
+        NearCacheConfig nearCacheConfig = new NearCacheConfig(nearCache.getMapName())
+            .setInMemoryFormat(nearCache.getInMemoryFormat())
+            .setInvalidateOnChange(nearCache.isInvalidateOnChange())
+            .setTimeToLiveSeconds(nearCache.getTimeToLiveSeconds())
+            .setMaxIdleSeconds(nearCache.getMaxIdleSeconds());
+        nearCacheConfig
+            .getEvictionConfig()
+            .setEvictionPolicy(nearCache.getEvictionPolicy())
+            .setMaxSizePolicy(MaxSizePolicy.ENTRY_COUNT)
+            .setSize(nearCache.getMaxSize());
+        log.debug("Configuring a {} near cache for Hazelcast map {}", nearCache.getInMemoryFormat(), nearCache.getMapName());
+        return mapConfig.setNearCacheConfig(nearCacheConfig);
+    }
+
     @Autowired(required = false)
     public void setGitProperties(GitProperties gitProperties) {
         this.gitProperties = gitProperties;
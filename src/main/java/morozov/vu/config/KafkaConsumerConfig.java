@@ -1,23 +1,52 @@
 package morozov.vu.config;
 
-import java.util.HashMap;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import morozov.vu.domain.ShopTwo;
+import morozov.vu.management.KafkaMetersService;
+import morozov.vu.service.ShopTwoIngestionService;
+import morozov.vu.service.ShopTwoRetryListener;
+import morozov.vu.service.kafka.CommitTimingConsumer;
+import morozov.vu.service.kafka.InvalidPayloadForwarder;
+import morozov.vu.service.kafka.PollTimestampInterceptor;
+import morozov.vu.service.kafka.ProcessedOffsetTracker;
+import morozov.vu.service.kafka.RetryTopicPublisher;
+import morozov.vu.service.kafka.ShopTwoDeserializer;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.LongDeserializer;
-import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.KafkaListenerConfigurer;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.KafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistrar;
+import org.springframework.kafka.config.SimpleKafkaListenerEndpoint;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.stereotype.Service;
+import org.springframework.util.backoff.FixedBackOff;
 
 @Service
 @Configuration
-public class KafkaConsumerConfig {
+public class KafkaConsumerConfig implements KafkaListenerConfigurer {
+
+    public static final String RETRY_LISTENER_ID_PREFIX = "orderRetryListener-";
+
+    private final Logger log = LoggerFactory.getLogger(KafkaConsumerConfig.class);
 
     @Value("${kafka.bootstrap-servers}")
     private String bootstrapServer;
@@ -25,25 +54,172 @@ public class KafkaConsumerConfig {
     @Value("${kafka.consumer.group.id}")
     private String kafkaGroupId;
 
+    private final KafkaProperties kafkaProperties;
+
+    private final InvalidPayloadForwarder invalidPayloadForwarder;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ProcessedOffsetTracker processedOffsetTracker;
+
+    private final RetryTopicPublisher retryTopicPublisher;
+
+    private final ShopTwoIngestionService shopTwoIngestionService;
+
+    private final KafkaMetersService kafkaMetersService;
+
+    public KafkaConsumerConfig(
+        KafkaProperties kafkaProperties,
+        InvalidPayloadForwarder invalidPayloadForwarder,
+        MeterRegistry meterRegistry,
+        ProcessedOffsetTracker processedOffsetTracker,
+        RetryTopicPublisher retryTopicPublisher,
+        ShopTwoIngestionService shopTwoIngestionService,
+        KafkaMetersService kafkaMetersService
+    ) {
+        this.kafkaProperties = kafkaProperties;
+        this.invalidPayloadForwarder = invalidPayloadForwarder;
+        this.meterRegistry = meterRegistry;
+        this.processedOffsetTracker = processedOffsetTracker;
+        this.retryTopicPublisher = retryTopicPublisher;
+        this.shopTwoIngestionService = shopTwoIngestionService;
+        this.kafkaMetersService = kafkaMetersService;
+    }
+
     @Bean
     public Map<String, Object> consumerConfigs() {
-        Map<String, Object> props = new HashMap<>();
+        // Starts from the consumer properties shared with the REST consumers, fetch settings of the profile included
+        Map<String, Object> props = kafkaProperties.getListenerConsumerProps();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServer);
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, LongDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ShopTwoDeserializer.class);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, kafkaGroupId);
+        // Offsets are committed by the container once a batch has been handled, never in the background
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // Stamps each record with its poll time, for the poll-to-process latency of the listener
+        props.put(ConsumerConfig.INTERCEPTOR_CLASSES_CONFIG, PollTimestampInterceptor.class.getName());
+        log.info(
+            "Kafka consumer profile {}: listener {}, REST consumers {}",
+            kafkaProperties.getConsumerProfile(),
+            fetchSettings(props),
+            fetchSettings(kafkaProperties.getConsumerProps())
+        );
         return props;
     }
 
+    private static Map<String, Object> fetchSettings(Map<String, Object> props) {
+        Map<String, Object> settings = new TreeMap<>();
+        for (String key : KafkaProperties.ConsumerProfile.BALANCED.consumerProps().keySet()) {
+            settings.put(key, props.get(key));
+        }
+        return settings;
+    }
+
     @Bean
     public KafkaListenerContainerFactory<?> kafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<Long, ShopTwo> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(listenerConcurrency());
+        // Listeners receive the whole poll() result; its offsets are committed only after the listener
+        // returned, that is after the database transaction holding the batch has been committed.
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        // When a listener reports the failed record (BatchListenerFailedException), the offsets before it are
+        // committed and only the remaining records are redelivered. With retry topics, the failed record is sent
+        // right away to the first retry stage rather than retried in place, so it never holds the partition back.
+        if (kafkaProperties.getRetry().isEnabled()) {
+            factory.setCommonErrorHandler(new DefaultErrorHandler(retryTopicPublisher::forward, new FixedBackOff(0L, 0L)));
+        } else {
+            factory.setCommonErrorHandler(new DefaultErrorHandler());
+        }
+        factory.getContainerProperties().setConsumerRebalanceListener(deduplicationWarmer());
+        return factory;
+    }
+
+    @Bean
+    public KafkaListenerContainerFactory<?> retryListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<Long, ShopTwo> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        // One record at a time: a record not due yet is nacked, which sleeps this consumer until it is
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(deduplicationWarmer());
         return factory;
     }
 
+    /**
+     * Register one container per retry stage, so that the delay of a stage never holds back the others.
+     */
+    @Override
+    public void configureKafkaListeners(KafkaListenerEndpointRegistrar registrar) {
+        KafkaProperties.Retry retry = kafkaProperties.getRetry();
+        if (!retry.isEnabled()) {
+            return;
+        }
+        for (int stage = 0; stage < retry.getAttempts(); stage++) {
+            SimpleKafkaListenerEndpoint<Long, ShopTwo> endpoint = new SimpleKafkaListenerEndpoint<>();
+            endpoint.setId(RETRY_LISTENER_ID_PREFIX + stage);
+            endpoint.setTopics(retryTopicPublisher.retryTopic(stage));
+            endpoint.setMessageListener(new ShopTwoRetryListener(stage, shopTwoIngestionService, retryTopicPublisher, kafkaMetersService));
+            registrar.registerEndpoint(endpoint, retryListenerContainerFactory());
+            log.debug("Retry stage {} consumes {} after {}", stage, retryTopicPublisher.retryTopic(stage), retryTopicPublisher.delayOf(stage));
+        }
+    }
+
+    private ConsumerAwareRebalanceListener deduplicationWarmer() {
+        // Records processed by the previous owner of a partition but not committed yet will be replayed: make them
+        // known to the deduplication filter before the first poll
+        return new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                processedOffsetTracker.warm(consumer, partitions);
+            }
+        };
+    }
+
     @Bean
     public ConsumerFactory<Long, ShopTwo> consumerFactory() {
-        return new DefaultKafkaConsumerFactory<>(consumerConfigs());
+        DefaultKafkaConsumerFactory<Long, ShopTwo> consumerFactory = new DefaultKafkaConsumerFactory<>(
+            consumerConfigs(),
+            new LongDeserializer(),
+            shopTwoDeserializer()
+        );
+        // Publishes the client metrics of every consumer (records-consumed-rate, fetch latency, time between polls...)
+        // tagged with its client id, that is per container thread; records-lag is also published per partition
+        consumerFactory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        consumerFactory.addPostProcessor(consumer -> CommitTimingConsumer.wrap(consumer, kafkaMetersService));
+        return consumerFactory;
+    }
+
+    @Bean
+    public ShopTwoDeserializer shopTwoDeserializer() {
+        // Shared by all the consumers of the factory: payloads it cannot read go to the "-invalid" topic. The factory
+        // does not configure the deserializer instances it is given, so the mode is set here
+        ShopTwoDeserializer deserializer = new ShopTwoDeserializer(invalidPayloadForwarder);
+        deserializer.setErrorTolerant(kafkaProperties.getListener().isErrorTolerantDeserialization());
+        return deserializer;
+    }
+
+    private int listenerConcurrency() {
+        KafkaProperties.Listener listener = kafkaProperties.getListener();
+        int concurrency = listener.getConcurrency();
+        if (listener.isScaleToPartitions()) {
+            int partitions = countPartitions(listener);
+            if (partitions > 0) {
+                concurrency = Math.min(partitions, listener.getMaxConcurrency());
+            }
+        }
+        concurrency = Math.max(1, concurrency);
+        log.info("Listening to topic {} with {} consumer thread(s)", listener.getTopic(), concurrency);
+        return concurrency;
+    }
+
+    private int countPartitions(KafkaProperties.Listener listener) {
+        try (Consumer<Long, ShopTwo> consumer = consumerFactory().createConsumer()) {
+            List<PartitionInfo> partitions = consumer.partitionsFor(listener.getTopic(), listener.getPartitionLookupTimeout());
+            return partitions == null ? 0 : partitions.size();
+        } catch (KafkaException e) {
+            log.warn("Could not read the partition count of topic {}, using the configured concurrency", listener.getTopic(), e);
+            return 0;
+        }
     }
 }
@@ -1,7 +1,12 @@
 package morozov.vu.config;
 
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
+import morozov.vu.service.kafka.ShopTwoWireFormat;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
@@ -13,8 +18,24 @@ public class KafkaProperties {
 
     private Map<String, String> consumer = new HashMap<>();
 
+    private ConsumerProfile consumerProfile = ConsumerProfile.BALANCED;
+
     private Map<String, String> producer = new HashMap<>();
 
+    private final Listener listener = new Listener();
+
+    private final Sse sse = new Sse();
+
+    private final Publish publish = new Publish();
+
+    private final Deduplication deduplication = new Deduplication();
+
+    private final Retry retry = new Retry();
+
+    private final Backpressure backpressure = new Backpressure();
+
+    private final WireFormat wireFormat = new WireFormat();
+
     public String getBootStrapServers() {
         return bootStrapServers;
     }
@@ -28,22 +49,673 @@ public class KafkaProperties {
         if (!properties.containsKey("bootstrap.servers")) {
             properties.put("bootstrap.servers", this.bootStrapServers);
         }
+        // Raw consumer properties win over the fetch settings of the profile
+        this.consumerProfile.consumerProps().forEach(properties::putIfAbsent);
         return properties;
     }
 
+    /**
+     * @return the properties of the consumers of the {@code @KafkaListener} containers: those of {@link #getConsumerProps()},
+     * with the batch settings of {@link Listener} applied over them.
+     */
+    public Map<String, Object> getListenerConsumerProps() {
+        Map<String, Object> properties = getConsumerProps();
+        if (this.listener.getBatchSize() != null) {
+            properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(this.listener.getBatchSize()));
+        }
+        if (this.listener.getBatchMinBytes() != null) {
+            properties.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, String.valueOf(this.listener.getBatchMinBytes()));
+        }
+        if (this.listener.getBatchMaxWait() != null) {
+            properties.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, String.valueOf(this.listener.getBatchMaxWait().toMillis()));
+        }
+        return properties;
+    }
+
+    /**
+     * @return the maximum number of records handed to the listener per poll.
+     */
+    public int getListenerBatchSize() {
+        return Integer.parseInt(getListenerConsumerProps().get(ConsumerConfig.MAX_POLL_RECORDS_CONFIG).toString());
+    }
+
     public void setConsumer(Map<String, String> consumer) {
         this.consumer = consumer;
     }
 
+    public ConsumerProfile getConsumerProfile() {
+        return consumerProfile;
+    }
+
+    public void setConsumerProfile(ConsumerProfile consumerProfile) {
+        this.consumerProfile = Objects.requireNonNull(consumerProfile, "kafka.consumer-profile");
+    }
+
     public Map<String, Object> getProducerProps() {
         Map<String, Object> properties = new HashMap<>(this.producer);
         if (!properties.containsKey("bootstrap.servers")) {
             properties.put("bootstrap.servers", this.bootStrapServers);
         }
+        // Raw producer properties win over the typed batching settings
+        properties.putIfAbsent("linger.ms", String.valueOf(this.publish.getLinger().toMillis()));
+        properties.putIfAbsent("batch.size", String.valueOf(this.publish.getBatchSize()));
         return properties;
     }
 
     public void setProducer(Map<String, String> producer) {
         this.producer = producer;
     }
+
+    public Listener getListener() {
+        return listener;
+    }
+
+    public Sse getSse() {
+        return sse;
+    }
+
+    public Publish getPublish() {
+        return publish;
+    }
+
+    public Deduplication getDeduplication() {
+        return deduplication;
+    }
+
+    public Retry getRetry() {
+        return retry;
+    }
+
+    public Backpressure getBackpressure() {
+        return backpressure;
+    }
+
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    /**
+     * Fetch settings of the consumers, applied by {@link #getConsumerProps()} unless set in {@code kafka.consumer}, so
+     * that the listener and the REST consumers are tuned together.
+     */
+    public enum ConsumerProfile {
+        /**
+         * Large fetches the broker fills before answering: fewer, bigger batches at the cost of latency.
+         */
+        THROUGHPUT(64 * 1024, Duration.ofMillis(500), 4 * 1024 * 1024, 2000, 1024 * 1024),
+        /**
+         * Small fetches answered as soon as a record is available.
+         */
+        LATENCY(1, Duration.ofMillis(20), 256 * 1024, 100, 64 * 1024),
+        /**
+         * The Kafka defaults, with batches of 500 records.
+         */
+        BALANCED(1, Duration.ofMillis(500), 1024 * 1024, 500, 64 * 1024);
+
+        private final int fetchMinBytes;
+
+        private final Duration fetchMaxWait;
+
+        private final int maxPartitionFetchBytes;
+
+        private final int maxPollRecords;
+
+        private final int receiveBufferBytes;
+
+        ConsumerProfile(int fetchMinBytes, Duration fetchMaxWait, int maxPartitionFetchBytes, int maxPollRecords, int receiveBufferBytes) {
+            this.fetchMinBytes = fetchMinBytes;
+            this.fetchMaxWait = fetchMaxWait;
+            this.maxPartitionFetchBytes = maxPartitionFetchBytes;
+            this.maxPollRecords = maxPollRecords;
+            this.receiveBufferBytes = receiveBufferBytes;
+        }
+
+        public Map<String, Object> consumerProps() {
+            Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, String.valueOf(fetchMinBytes));
+            properties.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, String.valueOf(fetchMaxWait.toMillis()));
+            properties.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, String.valueOf(maxPartitionFetchBytes));
+            properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(maxPollRecords));
+            properties.put(ConsumerConfig.RECEIVE_BUFFER_CONFIG, String.valueOf(receiveBufferBytes));
+            return properties;
+        }
+    }
+
+    /**
+     * Settings of the {@code @KafkaListener} containers built by {@link KafkaConsumerConfig}.
+     */
+    public static class Listener {
+
+        /**
+         * Id of the container of the ShopTwo listener in the {@code KafkaListenerEndpointRegistry}.
+         */
+        public static final String ORDER_LISTENER_ID = "orderListener";
+
+        /**
+         * Topic the ShopTwo listener subscribes to.
+         */
+        private String topic = "topic";
+
+        /**
+         * Number of consumer threads of the listener container.
+         */
+        private int concurrency = 1;
+
+        /**
+         * Whether to size the container after the partition count of {@code topic}, read at startup.
+         */
+        private boolean scaleToPartitions = false;
+
+        /**
+         * Upper bound of the concurrency when scaling to the partition count.
+         */
+        private int maxConcurrency = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Maximum time spent reading the partition count at startup.
+         */
+        private Duration partitionLookupTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Number of key-ordered lanes persisting each batch in parallel, {@code 0} to persist batches on the consumer thread.
+         */
+        private int parallelism = 0;
+
+        /**
+         * Maximum number of records handed to the batch listener per poll ({@code max.poll.records}), overriding the
+         * consumer profile when set.
+         */
+        private Integer batchSize;
+
+        /**
+         * Minimum amount of data the broker should gather before answering a fetch ({@code fetch.min.bytes}),
+         * overriding the consumer profile when set.
+         */
+        private Integer batchMinBytes;
+
+        /**
+         * Maximum time the broker may hold a fetch while waiting for {@code batchMinBytes} ({@code fetch.max.wait.ms}),
+         * overriding the consumer profile when set.
+         */
+        private Duration batchMaxWait;
+
+        /**
+         * Whether values which cannot be deserialized are forwarded to the {@code <topic>-invalid} topic and skipped,
+         * rather than failing the consumer.
+         */
+        private boolean errorTolerantDeserialization = true;
+
+        /**
+         * How the listener writes the ShopTwo records.
+         */
+        private WriteMode writeMode = WriteMode.SAVE;
+
+        public String getTopic() {
+            return topic;
+        }
+
+        public void setTopic(String topic) {
+            this.topic = topic;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public boolean isScaleToPartitions() {
+            return scaleToPartitions;
+        }
+
+        public void setScaleToPartitions(boolean scaleToPartitions) {
+            this.scaleToPartitions = scaleToPartitions;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public Duration getPartitionLookupTimeout() {
+            return partitionLookupTimeout;
+        }
+
+        public void setPartitionLookupTimeout(Duration partitionLookupTimeout) {
+            this.partitionLookupTimeout = partitionLookupTimeout;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public Integer getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(Integer batchSize) {
+            if (batchSize != null && batchSize < 1) {
+                throw new IllegalArgumentException("kafka.listener.batch-size must be positive, got " + batchSize);
+            }
+            this.batchSize = batchSize;
+        }
+
+        public Integer getBatchMinBytes() {
+            return batchMinBytes;
+        }
+
+        public void setBatchMinBytes(Integer batchMinBytes) {
+            if (batchMinBytes != null && batchMinBytes < 0) {
+                throw new IllegalArgumentException("kafka.listener.batch-min-bytes cannot be negative, got " + batchMinBytes);
+            }
+            this.batchMinBytes = batchMinBytes;
+        }
+
+        public Duration getBatchMaxWait() {
+            return batchMaxWait;
+        }
+
+        public void setBatchMaxWait(Duration batchMaxWait) {
+            if (batchMaxWait != null && (batchMaxWait.isNegative() || batchMaxWait.toMillis() > Integer.MAX_VALUE)) {
+                throw new IllegalArgumentException("kafka.listener.batch-max-wait is out of range: " + batchMaxWait);
+            }
+            this.batchMaxWait = batchMaxWait;
+        }
+
+        public boolean isErrorTolerantDeserialization() {
+            return errorTolerantDeserialization;
+        }
+
+        public void setErrorTolerantDeserialization(boolean errorTolerantDeserialization) {
+            this.errorTolerantDeserialization = errorTolerantDeserialization;
+        }
+
+        public WriteMode getWriteMode() {
+            return writeMode;
+        }
+
+        public void setWriteMode(WriteMode writeMode) {
+            this.writeMode = writeMode;
+        }
+
+        /**
+         * How the listener writes the ShopTwo records.
+         */
+        public enum WriteMode {
+            /**
+             * Read the current shopTwo of each record with an id, through the cache, and save it through Hibernate
+             * when it changed.
+             */
+            SAVE,
+            /**
+             * Insert or update the shopTwos by the key of their record, stored in the external_key column, in one
+             * statement per batch, leaving the unchanged rows alone.
+             */
+            UPSERT
+        }
+    }
+
+    /**
+     * Settings of the retry topics of the ShopTwo listener.
+     * <p>
+     * A record the listener cannot persist is sent to {@code <topic>-retry-0}, then to the next stage each time it
+     * fails again, and to {@code <topic>-dlt} after the last stage. Each stage has its own consumer, which waits for
+     * the delay of the stage before processing a record, so the main partitions are never held back.
+     */
+    public static class Retry {
+
+        /**
+         * Send the records that cannot be persisted to the retry topics, instead of retrying them in place.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Number of retry stages before the dead-letter topic.
+         */
+        private int attempts = 3;
+
+        /**
+         * Delay of the first retry stage.
+         */
+        private Duration initialDelay = Duration.ofSeconds(1);
+
+        /**
+         * Factor applied to the delay at each following stage.
+         */
+        private double multiplier = 5;
+
+        /**
+         * Upper bound of the delay of a stage.
+         */
+        private Duration maxDelay = Duration.ofMinutes(5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public void setAttempts(int attempts) {
+            this.attempts = attempts;
+        }
+
+        public Duration getInitialDelay() {
+            return initialDelay;
+        }
+
+        public void setInitialDelay(Duration initialDelay) {
+            this.initialDelay = initialDelay;
+        }
+
+        public double getMultiplier() {
+            return multiplier;
+        }
+
+        public void setMultiplier(double multiplier) {
+            this.multiplier = multiplier;
+        }
+
+        public Duration getMaxDelay() {
+            return maxDelay;
+        }
+
+        public void setMaxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+        }
+    }
+
+    /**
+     * Formats of the ShopTwo values written by the application; the ShopTwo consumers read all the formats.
+     */
+    public static class WireFormat {
+
+        /**
+         * Format of the values written to the topics not listed in {@code topics}.
+         */
+        private ShopTwoWireFormat defaultFormat = ShopTwoWireFormat.JSON;
+
+        /**
+         * Format of the values written to a topic, by topic name.
+         */
+        private Map<String, ShopTwoWireFormat> topics = new HashMap<>();
+
+        public ShopTwoWireFormat getDefaultFormat() {
+            return defaultFormat;
+        }
+
+        public void setDefaultFormat(ShopTwoWireFormat defaultFormat) {
+            this.defaultFormat = defaultFormat;
+        }
+
+        public Map<String, ShopTwoWireFormat> getTopics() {
+            return topics;
+        }
+
+        public void setTopics(Map<String, ShopTwoWireFormat> topics) {
+            this.topics = topics;
+        }
+    }
+
+    /**
+     * Settings of the backpressure of the ShopTwo listener, which pauses its container while persistence is slow.
+     * <p>
+     * A paused container keeps polling, so the consumers stay in the group, but the polls return no records.
+     */
+    public static class Backpressure {
+
+        /**
+         * Pause the listener container and shrink its transactions while persistence is slow.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Persistence time of a chunk of records above which the container is paused and the chunks are halved.
+         */
+        private Duration pauseLatency = Duration.ofSeconds(2);
+
+        /**
+         * Persistence time of a chunk of records below which the chunks grow back and the pause backoff is reset.
+         */
+        private Duration resumeLatency = Duration.ofMillis(500);
+
+        /**
+         * Number of records handed to the listener and not yet persisted above which the container is paused, 0 to
+         * never pause on it. Each consumer thread holds at most one batch, so only a value below the concurrency
+         * times the batch size can pause the container.
+         */
+        private int maxInFlight = 0;
+
+        /**
+         * How long the container stays paused the first time; doubled by each pause following a slow chunk.
+         */
+        private Duration pauseDuration = Duration.ofSeconds(1);
+
+        /**
+         * Upper bound of the pause duration.
+         */
+        private Duration maxPauseDuration = Duration.ofSeconds(30);
+
+        /**
+         * Smallest number of records persisted in one transaction when the chunks are shrunk.
+         */
+        private int minChunkSize = 25;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getPauseLatency() {
+            return pauseLatency;
+        }
+
+        public void setPauseLatency(Duration pauseLatency) {
+            this.pauseLatency = pauseLatency;
+        }
+
+        public Duration getResumeLatency() {
+            return resumeLatency;
+        }
+
+        public void setResumeLatency(Duration resumeLatency) {
+            this.resumeLatency = resumeLatency;
+        }
+
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public void setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+
+        public Duration getPauseDuration() {
+            return pauseDuration;
+        }
+
+        public void setPauseDuration(Duration pauseDuration) {
+            this.pauseDuration = pauseDuration;
+        }
+
+        public Duration getMaxPauseDuration() {
+            return maxPauseDuration;
+        }
+
+        public void setMaxPauseDuration(Duration maxPauseDuration) {
+            this.maxPauseDuration = maxPauseDuration;
+        }
+
+        public int getMinChunkSize() {
+            return minChunkSize;
+        }
+
+        public void setMinChunkSize(int minChunkSize) {
+            this.minChunkSize = minChunkSize;
+        }
+    }
+
+    /**
+     * Settings of the deduplication of the records replayed to the ShopTwo listener, for instance after a rebalance.
+     */
+    public static class Deduplication {
+
+        /**
+         * Record the processed records in the {@code processed_offset} table and skip those already there.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Number of records the in-memory filter in front of the table is sized for; it remembers at least the last
+         * half of them, and forgets the records older than half the retention.
+         */
+        private long expectedRecords = 1_000_000;
+
+        /**
+         * Share of the new records for which the in-memory filter cannot tell and the table is queried.
+         */
+        private double falsePositiveRate = 0.01;
+
+        /**
+         * How long processed records are kept in the table; records replayed after that are processed again.
+         */
+        private Duration retention = Duration.ofDays(7);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getExpectedRecords() {
+            return expectedRecords;
+        }
+
+        public void setExpectedRecords(long expectedRecords) {
+            this.expectedRecords = expectedRecords;
+        }
+
+        public double getFalsePositiveRate() {
+            return falsePositiveRate;
+        }
+
+        public void setFalsePositiveRate(double falsePositiveRate) {
+            this.falsePositiveRate = falsePositiveRate;
+        }
+
+        public Duration getRetention() {
+            return retention;
+        }
+
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+    }
+
+    /**
+     * Batching settings of the producers, applied by {@link #getProducerProps()} unless set in {@code kafka.producer}.
+     */
+    public static class Publish {
+
+        /**
+         * How long the producer waits for more records to fill a batch before sending it ({@code linger.ms}).
+         */
+        private Duration linger = Duration.ofMillis(5);
+
+        /**
+         * Maximum size of a batch of records sent to a partition, in bytes ({@code batch.size}).
+         */
+        private int batchSize = 64 * 1024;
+
+        public Duration getLinger() {
+            return linger;
+        }
+
+        public void setLinger(Duration linger) {
+            this.linger = linger;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+    }
+
+    /**
+     * Settings of the Server-Sent Events stream of {@code /api/consumer-kafka/consume}.
+     */
+    public static class Sse {
+
+        /**
+         * Number of events buffered per client before the overflow policy applies.
+         */
+        private int bufferSize = 256;
+
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+        /**
+         * Number of threads writing the buffered events to the clients.
+         */
+        private int senderThreads = 2;
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
+
+        public int getSenderThreads() {
+            return senderThreads;
+        }
+
+        public void setSenderThreads(int senderThreads) {
+            this.senderThreads = senderThreads;
+        }
+
+        /**
+         * What to do with a client whose buffer is full.
+         */
+        public enum OverflowPolicy {
+            /**
+             * Drop the oldest buffered event to make room for the new one.
+             */
+            DROP_OLDEST,
+            /**
+             * Close the connection of the client.
+             */
+            DISCONNECT
+        }
+    }
 }
@@ -2,6 +2,8 @@ package morozov.vu.domain;
 
 import java.io.Serializable;
 import javax.persistence.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 /**
  * A ShopTwo.
@@ -14,7 +16,11 @@ public class ShopTwo implements Serializable {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator")
+    @GenericGenerator(
+        name = "sequenceGenerator",
+        strategy = "morozov.vu.repository.PooledLoSequenceGenerator",
+        parameters = @Parameter(name = "sequence_name", value = "sequence_generator")
+    )
     @Column(name = "id")
     private Long id;
 
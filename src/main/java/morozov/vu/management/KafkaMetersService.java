@@ -0,0 +1,137 @@
+package morozov.vu.management;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.stereotype.Service;
+
+@Service
+public class KafkaMetersService {
+
+    public static final String RETRY_RECORDS_METER_NAME = "kafka.listener.retry.records";
+    public static final String RETRY_RECORDS_METER_DESCRIPTION = "Indicates how many records went through each retry stage of the listener.";
+    public static final String RETRY_RECORDS_METER_BASE_UNIT = "records";
+    public static final String RETRY_RECORDS_METER_STAGE_DIMENSION = "stage";
+    public static final String RETRY_RECORDS_METER_OUTCOME_DIMENSION = "outcome";
+
+    public static final String PROCESS_LATENCY_METER_NAME = "kafka.listener.record.poll-to-process";
+    public static final String PROCESS_LATENCY_METER_DESCRIPTION =
+        "Indicates the time between the poll returning a record and the listener having persisted it.";
+
+    public static final String END_TO_END_LATENCY_METER_NAME = "kafka.listener.record.end-to-end";
+    public static final String END_TO_END_LATENCY_METER_DESCRIPTION =
+        "Indicates the time between the timestamp of a record and the listener having persisted it.";
+
+    public static final String HANDLER_METER_NAME = "kafka.listener.handler";
+    public static final String HANDLER_METER_DESCRIPTION =
+        "Indicates the time spent in the listener by the batches holding records of the partition.";
+
+    public static final String COMMIT_LATENCY_METER_NAME = "kafka.consumer.commit";
+    public static final String COMMIT_LATENCY_METER_DESCRIPTION = "Indicates the time taken by the offset commits of the partition.";
+
+    public static final String BACKPRESSURE_PAUSES_METER_NAME = "kafka.listener.backpressure.pauses";
+    public static final String BACKPRESSURE_PAUSES_METER_DESCRIPTION = "Indicates how many times the listener was paused by its backpressure.";
+    public static final String BACKPRESSURE_PAUSES_METER_CAUSE_DIMENSION = "cause";
+
+    public static final String TOPIC_DIMENSION = "topic";
+    public static final String PARTITION_DIMENSION = "partition";
+
+    private final MeterRegistry registry;
+
+    // Per-record meters are looked up on the hot path: keep them by partition instead of rebuilding their id
+    private final Map<TopicPartition, Timer> processLatencyTimers = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, Timer> endToEndLatencyTimers = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, Timer> handlerTimers = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, Timer> commitTimers = new ConcurrentHashMap<>();
+
+    public KafkaMetersService(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    private Timer partitionTimer(String name, String description, TopicPartition partition) {
+        return Timer
+            .builder(name)
+            .description(description)
+            .tag(TOPIC_DIMENSION, partition.topic())
+            .tag(PARTITION_DIMENSION, Integer.toString(partition.partition()))
+            .register(registry);
+    }
+
+    /**
+     * A record of the partition was persisted, the given time after the poll which returned it.
+     */
+    public void recordPollToProcess(TopicPartition partition, long millis) {
+        processLatencyTimers
+            .computeIfAbsent(partition, tp -> partitionTimer(PROCESS_LATENCY_METER_NAME, PROCESS_LATENCY_METER_DESCRIPTION, tp))
+            .record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A record of the partition was persisted, the given time after its timestamp.
+     */
+    public void recordEndToEnd(TopicPartition partition, long millis) {
+        endToEndLatencyTimers
+            .computeIfAbsent(partition, tp -> partitionTimer(END_TO_END_LATENCY_METER_NAME, END_TO_END_LATENCY_METER_DESCRIPTION, tp))
+            .record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A batch holding records of the partition spent the given time in the listener.
+     */
+    public void recordHandlerTime(TopicPartition partition, long nanos) {
+        handlerTimers
+            .computeIfAbsent(partition, tp -> partitionTimer(HANDLER_METER_NAME, HANDLER_METER_DESCRIPTION, tp))
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * The offsets of the partition were committed in the given time.
+     */
+    public void recordCommitTime(TopicPartition partition, long nanos) {
+        commitTimers
+            .computeIfAbsent(partition, tp -> partitionTimer(COMMIT_LATENCY_METER_NAME, COMMIT_LATENCY_METER_DESCRIPTION, tp))
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * The listener was paused, because persistence was slow ({@code latency}) or too many records were waiting
+     * ({@code in-flight}).
+     */
+    public void trackBackpressurePause(String cause) {
+        Counter
+            .builder(BACKPRESSURE_PAUSES_METER_NAME)
+            .description(BACKPRESSURE_PAUSES_METER_DESCRIPTION)
+            .tag(BACKPRESSURE_PAUSES_METER_CAUSE_DIMENSION, cause)
+            .register(registry)
+            .increment();
+    }
+
+    private Counter retryRecordsCounter(String stage, String outcome) {
+        // Meters are registered once and then looked up by name and tags
+        return Counter
+            .builder(RETRY_RECORDS_METER_NAME)
+            .baseUnit(RETRY_RECORDS_METER_BASE_UNIT)
+            .description(RETRY_RECORDS_METER_DESCRIPTION)
+            .tag(RETRY_RECORDS_METER_STAGE_DIMENSION, stage)
+            .tag(RETRY_RECORDS_METER_OUTCOME_DIMENSION, outcome)
+            .register(registry);
+    }
+
+    /**
+     * A record was sent to a retry stage, or to the dead-letter topic.
+     */
+    public void trackRetryForwarded(String stage) {
+        retryRecordsCounter(stage, "forwarded").increment();
+    }
+
+    /**
+     * A record was persisted by a retry stage.
+     */
+    public void trackRetryRecovered(String stage) {
+        retryRecordsCounter(stage, "recovered").increment();
+    }
+}
@@ -0,0 +1,77 @@
+package morozov.vu.management;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.nearcache.NearCacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.function.ToDoubleFunction;
+import morozov.vu.config.ApplicationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the statistics of the near caches configured in {@code application.cache.near-caches}.
+ * <p>
+ * A map has no near cache statistics until its near cache is created, when the map is first used on this member: its
+ * meters read 0 until then.
+ */
+@Component
+public class NearCacheMetrics implements MeterBinder {
+
+    public static final String NEAR_CACHE_METER_PREFIX = "cache.near.";
+    public static final String MAP_DIMENSION = "map";
+
+    private final HazelcastInstance hazelcastInstance;
+
+    private final ApplicationProperties applicationProperties;
+
+    public NearCacheMetrics(HazelcastInstance hazelcastInstance, ApplicationProperties applicationProperties) {
+        this.hazelcastInstance = hazelcastInstance;
+        this.applicationProperties = applicationProperties;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (ApplicationProperties.NearCache nearCache : applicationProperties.getCache().getNearCaches()) {
+            String mapName = nearCache.getMapName();
+            counter(registry, mapName, "hits", "Reads served by the near cache", NearCacheStats::getHits);
+            counter(registry, mapName, "misses", "Reads that missed the near cache", NearCacheStats::getMisses);
+            counter(registry, mapName, "evictions", "Entries evicted from the near cache", NearCacheStats::getEvictions);
+            counter(registry, mapName, "invalidations", "Entries invalidated by a change in the cluster", NearCacheStats::getInvalidations);
+            Gauge
+                .builder(NEAR_CACHE_METER_PREFIX + "hit-ratio", this, metrics -> metrics.ratio(mapName))
+                .description("Share of the reads served by the near cache")
+                .tag(MAP_DIMENSION, mapName)
+                .register(registry);
+            Gauge
+                .builder(NEAR_CACHE_METER_PREFIX + "entries", this, metrics -> metrics.stat(mapName, NearCacheStats::getOwnedEntryCount))
+                .description("Entries held by the near cache")
+                .tag(MAP_DIMENSION, mapName)
+                .register(registry);
+        }
+    }
+
+    private void counter(MeterRegistry registry, String mapName, String name, String description, ToDoubleFunction<NearCacheStats> f) {
+        FunctionCounter
+            .builder(NEAR_CACHE_METER_PREFIX + name, this, metrics -> metrics.stat(mapName, f))
+            .description(description)
+            .tag(MAP_DIMENSION, mapName)
+            .register(registry);
+    }
+
+    private double ratio(String mapName) {
+        NearCacheStats stats = stats(mapName);
+        long reads = stats == null ? 0 : stats.getHits() + stats.getMisses();
+        return reads == 0 ? 0 : (double) stats.getHits() / reads;
+    }
+
+    private double stat(String mapName, ToDoubleFunction<NearCacheStats> f) {
+        NearCacheStats stats = stats(mapName);
+        return stats == null ? 0 : f.applyAsDouble(stats);
+    }
+
+    private NearCacheStats stats(String mapName) {
+        return hazelcastInstance.getMap(mapName).getLocalMapStats().getNearCacheStats();
+    }
+}
@@ -0,0 +1,145 @@
+package morozov.vu.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC repository for the {@code applied_key_offset} table, which records the position of the last record applied for
+ * each key of a topic.
+ */
+@Repository
+public class AppliedKeyOffsetRepository {
+
+    private static final String SELECT_FOR_UPDATE =
+        "select record_key, kafka_partition, kafka_offset from applied_key_offset " +
+        "where topic = :topic and record_key in (:keys) for update";
+
+    private static final String UPDATE =
+        "update applied_key_offset set kafka_partition = ?, kafka_offset = ? where topic = ? and record_key = ?";
+
+    private static final String POSTGRES_INSERT_ABSENT =
+        "insert into applied_key_offset (topic, record_key, kafka_partition, kafka_offset) values (?, ?, ?, ?) on conflict do nothing";
+
+    private static final String MERGE_ABSENT =
+        "merge into applied_key_offset t using (values (cast(? as varchar(249)), cast(? as bigint), cast(? as integer)," +
+        " cast(? as bigint))) s on (t.topic = s.c1 and t.record_key = s.c2)" +
+        " when not matched then insert (topic, record_key, kafka_partition, kafka_offset) values (s.c1, s.c2, s.c3, s.c4)";
+
+    /**
+     * Position of the row of a key none of whose records was applied yet: it supersedes no record.
+     */
+    private static final Position NONE = new Position(-1, -1);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private volatile Boolean postgres;
+
+    public AppliedKeyOffsetRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Read the last applied record of the given keys, locking their rows until the end of the current transaction.
+     * <p>
+     * A key without row gets one first, with no position, so that there is a row to lock: of two transactions writing
+     * the first record of a key at the same time, the second waits for the first instead of failing on the primary key.
+     *
+     * @return the position of the last applied record of each key, for the keys which have one.
+     */
+    public Map<Long, Position> lockApplied(String topic, Collection<Long> keys) {
+        Map<Long, Position> applied = new HashMap<>();
+        if (keys.isEmpty()) {
+            return applied;
+        }
+        List<Object[]> rows = new ArrayList<>(keys.size());
+        for (Long key : keys) {
+            rows.add(new Object[] { topic, key, NONE.getPartition(), NONE.getOffset() });
+        }
+        jdbcTemplate.batchUpdate(isPostgres() ? POSTGRES_INSERT_ABSENT : MERGE_ABSENT, rows);
+        MapSqlParameterSource parameters = new MapSqlParameterSource().addValue("topic", topic).addValue("keys", keys);
+        namedParameterJdbcTemplate.query(
+            SELECT_FOR_UPDATE,
+            parameters,
+            resultSet -> {
+                Position position = new Position(resultSet.getInt("kafka_partition"), resultSet.getLong("kafka_offset"));
+                if (position.getPartition() != NONE.getPartition()) {
+                    applied.put(resultSet.getLong("record_key"), position);
+                }
+            }
+        );
+        return applied;
+    }
+
+    /**
+     * Record the last applied record of keys locked by {@link #lockApplied}, in one JDBC batch.
+     *
+     * @param applied the position of the last applied record of each key.
+     */
+    public void saveApplied(String topic, Map<Long, Position> applied) {
+        List<Object[]> updates = new ArrayList<>(applied.size());
+        applied.forEach((key, position) -> updates.add(new Object[] { position.getPartition(), position.getOffset(), topic, key }));
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE, updates);
+        }
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            result =
+                jdbcTemplate.execute(
+                    (ConnectionCallback<Boolean>) connection ->
+                        "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())
+                );
+            postgres = result;
+        }
+        return result;
+    }
+
+    /**
+     * The position of a record in its topic.
+     */
+    public static final class Position {
+
+        private final int partition;
+
+        private final long offset;
+
+        public Position(int partition, long offset) {
+            this.partition = partition;
+            this.offset = offset;
+        }
+
+        public int getPartition() {
+            return partition;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * @return whether this position is the one of the other record, or comes after it; positions in different
+         * partitions are not ordered.
+         */
+        public boolean supersedes(Position other) {
+            return partition == other.partition && offset >= other.offset;
+        }
+
+        @Override
+        public String toString() {
+            return partition + "@" + offset;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package morozov.vu.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Sequence-based identifier generator reserving blocks of identifiers, pooled-lo style.
+ * <p>
+ * Each call to the sequence reserves the block starting at the returned value: with a sequence incremented by the
+ * block size, the identifiers from {@code value} to {@code value + blockSize - 1} are then handed out from memory,
+ * without lock, and the sequence is only called again once the block is used up. The block size is the
+ * {@code increment_size} parameter of the generator, otherwise the {@value #BLOCK_SIZE_SETTING} setting, and must not
+ * exceed the increment of the sequence, or blocks would overlap: {@link SequenceIncrementVerifier} checks it at
+ * startup.
+ * <p>
+ * The sequence calls and the generated identifiers are counted in {@value #FETCHES_METER_NAME} and
+ * {@value #GENERATED_METER_NAME}, tagged by sequence: their ratio is the number of sequence calls per inserted row.
+ */
+public class PooledLoSequenceGenerator extends SequenceStyleGenerator {
+
+    /**
+     * Hibernate setting giving the default block size.
+     */
+    public static final String BLOCK_SIZE_SETTING = "hibernate.id.block_size";
+
+    public static final int DEFAULT_BLOCK_SIZE = 50;
+
+    public static final String FETCHES_METER_NAME = "hibernate.id.sequence.fetches";
+
+    public static final String GENERATED_METER_NAME = "hibernate.id.generated";
+
+    private static final Block EMPTY = new Block(0, 0);
+
+    private volatile Block block = EMPTY;
+
+    private DatabaseStructure databaseStructure;
+
+    private int blockSize;
+
+    private Counter fetches;
+
+    private Counter generated;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+        int defaultBlockSize = ConfigurationHelper.getInt(
+            BLOCK_SIZE_SETTING,
+            serviceRegistry.getService(ConfigurationService.class).getSettings(),
+            DEFAULT_BLOCK_SIZE
+        );
+        this.blockSize = ConfigurationHelper.getInt(INCREMENT_PARAM, params, defaultBlockSize);
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("The block size of an identifier generator must be positive, got " + blockSize);
+        }
+        params.setProperty(INCREMENT_PARAM, Integer.toString(blockSize));
+        params.setProperty(OPT_PARAM, "pooled-lo");
+        super.configure(type, params, serviceRegistry);
+        initialize(getDatabaseStructure(), blockSize, Metrics.globalRegistry);
+    }
+
+    void initialize(DatabaseStructure databaseStructure, int blockSize, MeterRegistry meterRegistry) {
+        this.databaseStructure = databaseStructure;
+        this.blockSize = blockSize;
+        this.fetches = meterRegistry.counter(FETCHES_METER_NAME, "sequence", databaseStructure.getName());
+        this.generated = meterRegistry.counter(GENERATED_METER_NAME, "sequence", databaseStructure.getName());
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        while (true) {
+            Block current = block;
+            long id = current.next.getAndIncrement();
+            if (id < current.limit) {
+                generated.increment();
+                return id;
+            }
+            refill(session, current);
+        }
+    }
+
+    /**
+     * Reserve the next block, unless another thread already replaced the exhausted one.
+     */
+    private synchronized void refill(SharedSessionContractImplementor session, Block exhausted) {
+        if (block != exhausted) {
+            return;
+        }
+        long lo = databaseStructure.buildCallback(session).getNextValue().makeValue().longValue();
+        fetches.increment();
+        block = new Block(lo, lo + blockSize);
+    }
+
+    private static final class Block {
+
+        private final AtomicLong next;
+
+        private final long limit;
+
+        private Block(long lo, long limit) {
+            this.next = new AtomicLong(lo);
+            this.limit = limit;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package morozov.vu.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC repository for the {@code processed_offset} table, which records the Kafka records already persisted.
+ */
+@Repository
+public class ProcessedOffsetRepository {
+
+    private static final String POSTGRES_INSERT =
+        "insert into processed_offset (topic, kafka_partition, kafka_offset, processed_at) values ";
+
+    private static final String POSTGRES_ON_CONFLICT = " on conflict do nothing returning kafka_offset";
+
+    private static final int ROWS_PER_INSERT = 1000;
+
+    private static final String MERGE =
+        "merge into processed_offset t using (values (cast(? as varchar(249)), cast(? as integer), cast(? as bigint)," +
+        " cast(? as timestamp))) s on (t.topic = s.c1 and t.kafka_partition = s.c2 and t.kafka_offset = s.c3)" +
+        " when not matched then insert (topic, kafka_partition, kafka_offset, processed_at) values (s.c1, s.c2, s.c3, s.c4)";
+
+    private static final String SELECT_AMONG =
+        "select kafka_offset from processed_offset where topic = :topic and kafka_partition = :partition and kafka_offset in (:offsets)";
+
+    private static final String SELECT_FROM =
+        "select kafka_offset from processed_offset where topic = ? and kafka_partition = ? and kafka_offset >= ?";
+
+    private static final String DELETE_BEFORE = "delete from processed_offset where processed_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private volatile Boolean postgres;
+
+    public ProcessedOffsetRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * @return the offsets, among the given ones, of the records of the partition already processed.
+     */
+    public Set<Long> findProcessed(String topic, int partition, Collection<Long> offsets) {
+        if (offsets.isEmpty()) {
+            return new HashSet<>();
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+            .addValue("topic", topic)
+            .addValue("partition", partition)
+            .addValue("offsets", offsets);
+        return new HashSet<>(namedParameterJdbcTemplate.queryForList(SELECT_AMONG, parameters, Long.class));
+    }
+
+    /**
+     * @return the offsets of the records of the partition processed from the given offset on.
+     */
+    public List<Long> findProcessedFrom(String topic, int partition, long fromOffset) {
+        return jdbcTemplate.queryForList(SELECT_FROM, Long.class, topic, partition, fromOffset);
+    }
+
+    /**
+     * Record records of a partition as processed, unless they already are: on PostgreSQL with multi-row
+     * {@code INSERT ... ON CONFLICT DO NOTHING} statements, elsewhere with a JDBC batch of {@code MERGE}.
+     * <p>
+     * An offset recorded by a concurrent transaction is skipped instead of failing on the primary key: on PostgreSQL
+     * the insert waits for that transaction, and is skipped if it commits.
+     *
+     * @return the offsets recorded by this call; the others were already processed.
+     */
+    public Set<Long> markProcessed(String topic, int partition, List<Long> offsets) {
+        Set<Long> recorded = new HashSet<>();
+        Timestamp now = Timestamp.from(Instant.now());
+        if (isPostgres()) {
+            for (int from = 0; from < offsets.size(); from += ROWS_PER_INSERT) {
+                List<Long> chunk = offsets.subList(from, Math.min(offsets.size(), from + ROWS_PER_INSERT));
+                StringBuilder sql = new StringBuilder(POSTGRES_INSERT);
+                List<Object> args = new ArrayList<>(chunk.size() * 4);
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+                    args.add(topic);
+                    args.add(partition);
+                    args.add(chunk.get(i));
+                    args.add(now);
+                }
+                recorded.addAll(jdbcTemplate.queryForList(sql.append(POSTGRES_ON_CONFLICT).toString(), Long.class, args.toArray()));
+            }
+            return recorded;
+        }
+        List<Object[]> rows = new ArrayList<>(offsets.size());
+        for (Long offset : offsets) {
+            rows.add(new Object[] { topic, partition, offset, now });
+        }
+        int[] counts = jdbcTemplate.batchUpdate(MERGE, rows);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                recorded.add(offsets.get(i));
+            }
+        }
+        return recorded;
+    }
+
+    /**
+     * @return the number of records forgotten.
+     */
+    public int deleteProcessedBefore(Instant instant) {
+        return jdbcTemplate.update(DELETE_BEFORE, Timestamp.from(instant));
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            result =
+                jdbcTemplate.execute(
+                    (ConnectionCallback<Boolean>) connection ->
+                        "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())
+                );
+            postgres = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,73 @@
+package morozov.vu.repository;
+
+import java.util.List;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks at startup that the identifier blocks of {@link PooledLoSequenceGenerator} and {@link ShopTwoBulkLoader} do
+ * not exceed the increment of {@code sequence_generator}: a larger block would overlap the next one, and hand out the
+ * same identifiers twice. The application fails to start if they do.
+ * <p>
+ * The check runs once all the singletons are created, so after Liquibase, on which the entity manager factory depends,
+ * and before the Kafka listener containers start consuming and writing identifiers; when Liquibase runs asynchronously
+ * and has not created the sequence yet, it is skipped with a warning.
+ */
+@Component
+public class SequenceIncrementVerifier implements SmartInitializingSingleton {
+
+    public static final String SEQUENCE_NAME = "sequence_generator";
+
+    private static final String SELECT_INCREMENT = "select increment from information_schema.sequences where lower(sequence_name) = ?";
+
+    private final Logger log = LoggerFactory.getLogger(SequenceIncrementVerifier.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int blockSize;
+
+    public SequenceIncrementVerifier(
+        DataSource dataSource,
+        @Value("${spring.jpa.properties.hibernate.id.block_size:" + PooledLoSequenceGenerator.DEFAULT_BLOCK_SIZE + "}") int blockSize
+    ) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        verify();
+    }
+
+    /**
+     * @throws IllegalStateException if the block size exceeds the increment of the sequence.
+     */
+    void verify() {
+        // The increment is a bigint on H2, a character string on PostgreSQL
+        List<String> increments = jdbcTemplate.queryForList(SELECT_INCREMENT, String.class, SEQUENCE_NAME);
+        if (increments.isEmpty()) {
+            log.warn("Sequence {} not found, the increment of its identifier blocks is not checked", SEQUENCE_NAME);
+            return;
+        }
+        long increment = Long.parseLong(increments.get(0).trim());
+        if (blockSize > increment) {
+            throw new IllegalStateException(
+                "The identifier block size " +
+                blockSize +
+                " (" +
+                PooledLoSequenceGenerator.BLOCK_SIZE_SETTING +
+                ") exceeds the increment " +
+                increment +
+                " of the sequence " +
+                SEQUENCE_NAME +
+                ": lower it, or alter the increment of the sequence"
+            );
+        }
+        log.debug("Identifier blocks of {} within the increment {} of {}", blockSize, increment, SEQUENCE_NAME);
+    }
+}
@@ -0,0 +1,308 @@
+package morozov.vu.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import morozov.vu.domain.ShopTwo;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC loader writing many {@link ShopTwo} into {@code shop_two} without going through Hibernate.
+ * <p>
+ * New rows are loaded by {@link #load(List)}: on PostgreSQL they are streamed with {@code COPY FROM STDIN} in CSV
+ * format; on the other databases, H2 in development and tests, they are inserted with multi-row {@code INSERT}
+ * statements. The ids are reserved from {@code sequence_generator} by blocks, as {@link PooledLoSequenceGenerator}
+ * does, in a single query.
+ * <p>
+ * Rows identified by an external key, the key of their Kafka records, are written by {@link #upsert(Map)}, in one
+ * statement per chunk of rows.
+ * <p>
+ * The loader runs on the connection of the current transaction; entities it writes are not in the persistence
+ * context.
+ */
+@Repository
+public class ShopTwoBulkLoader {
+
+    private static final String COLUMNS = "id, shop_name, owner, category, email";
+
+    private static final String COPY = "copy shop_two (" + COLUMNS + ") from stdin with (format csv)";
+
+    private static final String POSTGRES_NEXT_VALUES = "select nextval('sequence_generator') from generate_series(1, ?)";
+
+    private static final String NEXT_VALUES = "select next value for sequence_generator from system_range(1, ?)";
+
+    private static final String UPSERT_COLUMNS = "id, external_key, shop_name, owner, category, email";
+
+    private static final String POSTGRES_UPSERT_CONFLICT =
+        " on conflict (external_key) do update set shop_name = excluded.shop_name, owner = excluded.owner," +
+        " category = excluded.category, email = excluded.email" +
+        // Unchanged rows are not updated at all, so they cost no new row version nor WAL
+        " where (shop_two.shop_name, shop_two.owner, shop_two.category, shop_two.email)" +
+        " is distinct from (excluded.shop_name, excluded.owner, excluded.category, excluded.email)" +
+        " returning id";
+
+    // H2 cannot tell the type of a parameter in a VALUES table
+    private static final String MERGE_ROW =
+        "(cast(? as bigint), cast(? as bigint), cast(? as varchar(255)), cast(? as varchar(255))," +
+        " cast(? as varchar(255)), cast(? as varchar(255)))";
+
+    // The columns of a VALUES table are named C1, C2... in H2
+    private static final String MERGE_MATCHING =
+        ") s on (t.external_key = s.c2)" +
+        " when matched then update set shop_name = s.c3, owner = s.c4, category = s.c5, email = s.c6" +
+        " when not matched then insert (" + UPSERT_COLUMNS + ") values (s.c1, s.c2, s.c3, s.c4, s.c5, s.c6)";
+
+    private static final int ROWS_PER_INSERT = 100;
+
+    private static final int ROWS_PER_UPSERT = 1000;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final CacheManager cacheManager;
+
+    private final int blockSize;
+
+    private volatile Boolean postgres;
+
+    public ShopTwoBulkLoader(
+        DataSource dataSource,
+        CacheManager cacheManager,
+        @Value("${spring.jpa.properties.hibernate.id.block_size:" + PooledLoSequenceGenerator.DEFAULT_BLOCK_SIZE + "}") int blockSize
+    ) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.cacheManager = cacheManager;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Insert new shopTwos, setting their id.
+     *
+     * @param shopTwos the shopTwos to insert; their current id is replaced.
+     * @return the number of inserted rows.
+     */
+    public int load(List<ShopTwo> shopTwos) {
+        if (shopTwos.isEmpty()) {
+            return 0;
+        }
+        assignIds(shopTwos);
+        if (isPostgres()) {
+            copy(shopTwos);
+        } else {
+            insert(shopTwos);
+        }
+        return shopTwos.size();
+    }
+
+    /**
+     * Insert the shopTwos whose external key is new, and update the others, by external key.
+     * <p>
+     * On PostgreSQL this is an {@code INSERT ... ON CONFLICT (external_key) DO UPDATE} which leaves the unchanged rows
+     * alone, on the other databases a {@code MERGE}. The ids of the rows of the known keys are read first, so that
+     * ids are reserved from {@code sequence_generator} for the new keys only; the ids of the shopTwos are neither read
+     * nor set. The entries of the written rows are evicted from the {@link ShopTwoRepository#SHOP_TWO_BY_ID_CACHE}
+     * cache once the transaction commits, the cache manager being transaction-aware.
+     *
+     * @param shopTwos the shopTwos to write, by external key.
+     * @return the number of inserted or updated rows; on PostgreSQL, the unchanged rows are not counted.
+     */
+    public int upsert(Map<Long, ShopTwo> shopTwos) {
+        if (shopTwos.isEmpty()) {
+            return 0;
+        }
+        List<Map.Entry<Long, ShopTwo>> entries = new ArrayList<>(shopTwos.entrySet());
+        Map<Long, Long> existingIds = new HashMap<>();
+        for (int from = 0; from < entries.size(); from += ROWS_PER_UPSERT) {
+            existingIds.putAll(idsOf(entries.subList(from, Math.min(entries.size(), from + ROWS_PER_UPSERT))));
+        }
+        long[] newIds = nextIds(entries.size() - existingIds.size());
+        int next = 0;
+        List<Long> written = new ArrayList<>();
+        int count = 0;
+        for (int from = 0; from < entries.size(); from += ROWS_PER_UPSERT) {
+            int to = Math.min(entries.size(), from + ROWS_PER_UPSERT);
+            List<Object> args = new ArrayList<>((to - from) * 6);
+            StringBuilder sql = new StringBuilder(
+                isPostgres() ? "insert into shop_two (" + UPSERT_COLUMNS + ") values " : "merge into shop_two t using (values "
+            );
+            for (int i = from; i < to; i++) {
+                sql.append(i == from ? "" : ", ").append(isPostgres() ? "(?, ?, ?, ?, ?, ?)" : MERGE_ROW);
+                Long key = entries.get(i).getKey();
+                ShopTwo shopTwo = entries.get(i).getValue();
+                Long id = existingIds.get(key);
+                // The id of a known key is only there to fill the row: the conflict or the match keeps the current one
+                args.add(id != null ? id : newIds[next++]);
+                args.add(key);
+                args.add(shopTwo.getShopName());
+                args.add(shopTwo.getOwner());
+                args.add(shopTwo.getCategory());
+                args.add(shopTwo.getEmail());
+            }
+            if (isPostgres()) {
+                sql.append(POSTGRES_UPSERT_CONFLICT);
+                List<Long> chunkWritten = jdbcTemplate.queryForList(sql.toString(), Long.class, args.toArray());
+                written.addAll(chunkWritten);
+                count += chunkWritten.size();
+            } else {
+                sql.append(MERGE_MATCHING);
+                count += jdbcTemplate.update(sql.toString(), args.toArray());
+            }
+        }
+        if (!isPostgres()) {
+            // Only the rows which existed can be cached
+            written.addAll(existingIds.values());
+        }
+        Cache cache = cacheManager.getCache(ShopTwoRepository.SHOP_TWO_BY_ID_CACHE);
+        if (cache != null) {
+            written.forEach(cache::evict);
+        }
+        return count;
+    }
+
+    /**
+     * @return the ids of the rows of the keys which exist, by key.
+     */
+    private Map<Long, Long> idsOf(List<Map.Entry<Long, ShopTwo>> entries) {
+        StringBuilder sql = new StringBuilder("select external_key, id from shop_two where external_key in (");
+        Object[] keys = new Object[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+            keys[i] = entries.get(i).getKey();
+        }
+        Map<Long, Long> ids = new HashMap<>();
+        jdbcTemplate.query(sql.append(")").toString(), (RowCallbackHandler) rs -> ids.put(rs.getLong(1), rs.getLong(2)), keys);
+        return ids;
+    }
+
+    private void assignIds(List<ShopTwo> shopTwos) {
+        long[] ids = nextIds(shopTwos.size());
+        for (int i = 0; i < shopTwos.size(); i++) {
+            shopTwos.get(i).setId(ids[i]);
+        }
+    }
+
+    /**
+     * Reserve ids from the sequence, by blocks, in a single query.
+     */
+    private long[] nextIds(int count) {
+        if (count == 0) {
+            return new long[0];
+        }
+        int blocks = (count + blockSize - 1) / blockSize;
+        List<Long> los = jdbcTemplate.queryForList(isPostgres() ? POSTGRES_NEXT_VALUES : NEXT_VALUES, Long.class, blocks);
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = los.get(i / blockSize) + i % blockSize;
+        }
+        return ids;
+    }
+
+    private void copy(List<ShopTwo> shopTwos) {
+        jdbcTemplate.execute(
+            (ConnectionCallback<Long>) connection -> {
+                CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY);
+                try {
+                    StringBuilder csv = new StringBuilder(COPY_BUFFER_SIZE + 1024);
+                    for (ShopTwo shopTwo : shopTwos) {
+                        csv.append(shopTwo.getId());
+                        appendField(csv, shopTwo.getShopName());
+                        appendField(csv, shopTwo.getOwner());
+                        appendField(csv, shopTwo.getCategory());
+                        appendField(csv, shopTwo.getEmail());
+                        csv.append('\n');
+                        if (csv.length() >= COPY_BUFFER_SIZE) {
+                            write(copyIn, csv);
+                        }
+                    }
+                    write(copyIn, csv);
+                    return copyIn.endCopy();
+                } finally {
+                    if (copyIn.isActive()) {
+                        copyIn.cancelCopy();
+                    }
+                }
+            }
+        );
+    }
+
+    /**
+     * Append a CSV field: {@code null} as an empty unquoted field, which COPY reads as NULL, anything else quoted.
+     */
+    private static void appendField(StringBuilder csv, String value) {
+        csv.append(',');
+        if (value == null) {
+            return;
+        }
+        csv.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        csv.append('"');
+    }
+
+    private static void write(CopyIn copyIn, StringBuilder csv) throws SQLException {
+        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        csv.setLength(0);
+    }
+
+    private void insert(List<ShopTwo> shopTwos) {
+        for (int from = 0; from < shopTwos.size(); from += ROWS_PER_INSERT) {
+            List<ShopTwo> rows = shopTwos.subList(from, Math.min(shopTwos.size(), from + ROWS_PER_INSERT));
+            StringBuilder sql = new StringBuilder("insert into shop_two (" + COLUMNS + ") values ");
+            // The rows must be appended before the statement is read
+            Object[] args = appendRows(sql, rows);
+            jdbcTemplate.update(sql.toString(), args);
+        }
+    }
+
+    /**
+     * Append the value lists of the rows to the statement.
+     *
+     * @return the arguments of the appended placeholders.
+     */
+    private static Object[] appendRows(StringBuilder sql, List<ShopTwo> rows) {
+        List<Object> args = new ArrayList<>(rows.size() * 5);
+        for (int i = 0; i < rows.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+            ShopTwo shopTwo = rows.get(i);
+            args.add(shopTwo.getId());
+            args.add(shopTwo.getShopName());
+            args.add(shopTwo.getOwner());
+            args.add(shopTwo.getCategory());
+            args.add(shopTwo.getEmail());
+        }
+        return args.toArray();
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            result = jdbcTemplate.execute((ConnectionCallback<Boolean>) this::isPostgres);
+            postgres = result;
+        }
+        return result;
+    }
+
+    private boolean isPostgres(Connection connection) throws SQLException {
+        return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+    }
+}
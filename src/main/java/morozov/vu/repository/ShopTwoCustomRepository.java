@@ -0,0 +1,56 @@
+package morozov.vu.repository;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Consumer;
+import javax.persistence.metamodel.SingularAttribute;
+import morozov.vu.domain.ShopTwo;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Custom queries of the ShopTwo repository, which go below JPA to keep memory use flat.
+ */
+public interface ShopTwoCustomRepository {
+    /**
+     * Read all the shopTwos, ordered by id, through a forward-only JDBC cursor and hand them one at a time to the action.
+     * <p>
+     * The rows are fetched from the database in chunks of a fixed size and are neither kept nor attached to the
+     * persistence context, so the memory used does not depend on the size of the table.
+     *
+     * @param action the action to perform on each shopTwo.
+     */
+    @Transactional(readOnly = true)
+    void streamAll(Consumer<ShopTwo> action);
+
+    /**
+     * Read a page of the shopTwos matching the specification, selecting only their id and the given fields.
+     * <p>
+     * The other fields are left null, and the shopTwos are not attached to the persistence context. The matching rows
+     * are only counted when the page does not tell the total by itself.
+     *
+     * @param specification the shopTwos to read, or {@code null} for all of them.
+     * @param fields the fields to select besides the id.
+     * @param pageable the page to read.
+     * @return the page of shopTwos.
+     */
+    @Transactional(readOnly = true)
+    Page<ShopTwo> findAllSelecting(Specification<ShopTwo> specification, Collection<SingularAttribute<ShopTwo, ?>> fields, Pageable pageable);
+
+    /**
+     * Set the non-null fields of the given shopTwo on the row with the same id, with one {@code UPDATE} statement that
+     * only lists these fields, then read the row back.
+     * <p>
+     * The row is read from the database rather than through {@link ShopTwoRepository#findById}: the eviction of the
+     * cached shopTwo only happens once the transaction commits.
+     *
+     * @param changes the id of the shopTwo to update and the fields to change.
+     * @return the shopTwo as updated, or empty if there is no shopTwo with this id.
+     */
+    @Transactional
+    @CacheEvict(cacheNames = ShopTwoRepository.SHOP_TWO_BY_ID_CACHE, key = "#p0.id")
+    Optional<ShopTwo> patch(ShopTwo changes);
+}
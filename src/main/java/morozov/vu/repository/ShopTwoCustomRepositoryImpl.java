@@ -0,0 +1,165 @@
+package morozov.vu.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.sql.DataSource;
+import morozov.vu.domain.ShopTwo;
+import morozov.vu.domain.ShopTwo_;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC implementation of {@link ShopTwoCustomRepository}.
+ */
+class ShopTwoCustomRepositoryImpl implements ShopTwoCustomRepository {
+
+    static final int STREAM_FETCH_SIZE = 500;
+
+    private static final String SELECT_ALL = "select id, shop_name, owner, category, email from shop_two order by id";
+
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    ShopTwoCustomRepositoryImpl(DataSource dataSource) {
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+    }
+
+    @Override
+    public void streamAll(Consumer<ShopTwo> action) {
+        streamingJdbcTemplate.query(
+            SELECT_ALL,
+            resultSet -> {
+                action.accept(
+                    new ShopTwo()
+                        .id(resultSet.getLong("id"))
+                        .shopName(resultSet.getString("shop_name"))
+                        .owner(resultSet.getString("owner"))
+                        .category(resultSet.getString("category"))
+                        .email(resultSet.getString("email"))
+                );
+            }
+        );
+    }
+
+    @Override
+    public Page<ShopTwo> findAllSelecting(
+        Specification<ShopTwo> specification,
+        Collection<SingularAttribute<ShopTwo, ?>> fields,
+        Pageable pageable
+    ) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<ShopTwo> root = query.from(ShopTwo.class);
+        List<Selection<?>> selections = new ArrayList<>(fields.size() + 1);
+        selections.add(root.get(ShopTwo_.id).alias(ShopTwo_.ID));
+        for (SingularAttribute<ShopTwo, ?> field : fields) {
+            if (!ShopTwo_.id.equals(field)) {
+                selections.add(root.get(field).alias(field.getName()));
+            }
+        }
+        query.multiselect(selections);
+        Predicate predicate = toPredicate(specification, root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+
+        TypedQuery<Tuple> typedQuery = em.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<ShopTwo> content = new ArrayList<>();
+        for (Tuple tuple : typedQuery.getResultList()) {
+            ShopTwo shopTwo = new ShopTwo().id(tuple.get(ShopTwo_.ID, Long.class));
+            for (SingularAttribute<ShopTwo, ?> field : fields) {
+                set(shopTwo, field, tuple.get(field.getName()));
+            }
+            content.add(shopTwo);
+        }
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(specification));
+    }
+
+    private long count(Specification<ShopTwo> specification) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<ShopTwo> root = query.from(ShopTwo.class);
+        // The specification may make the query distinct: built before the selection
+        Predicate predicate = toPredicate(specification, root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(query.isDistinct() ? cb.countDistinct(root) : cb.count(root));
+        return em.createQuery(query).getSingleResult();
+    }
+
+    private static Predicate toPredicate(Specification<ShopTwo> specification, Root<ShopTwo> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+        return specification != null ? specification.toPredicate(root, query, cb) : null;
+    }
+
+    private static void set(ShopTwo shopTwo, SingularAttribute<ShopTwo, ?> field, Object value) {
+        if (ShopTwo_.shopName.equals(field)) {
+            shopTwo.setShopName((String) value);
+        } else if (ShopTwo_.owner.equals(field)) {
+            shopTwo.setOwner((String) value);
+        } else if (ShopTwo_.category.equals(field)) {
+            shopTwo.setCategory((String) value);
+        } else if (ShopTwo_.email.equals(field)) {
+            shopTwo.setEmail((String) value);
+        }
+    }
+
+    @Override
+    public Optional<ShopTwo> patch(ShopTwo changes) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaUpdate<ShopTwo> update = cb.createCriteriaUpdate(ShopTwo.class);
+        Root<ShopTwo> root = update.from(ShopTwo.class);
+        boolean changed = false;
+        if (changes.getShopName() != null) {
+            update.set(root.get(ShopTwo_.shopName), changes.getShopName());
+            changed = true;
+        }
+        if (changes.getOwner() != null) {
+            update.set(root.get(ShopTwo_.owner), changes.getOwner());
+            changed = true;
+        }
+        if (changes.getCategory() != null) {
+            update.set(root.get(ShopTwo_.category), changes.getCategory());
+            changed = true;
+        }
+        if (changes.getEmail() != null) {
+            update.set(root.get(ShopTwo_.email), changes.getEmail());
+            changed = true;
+        }
+        if (changed) {
+            // Otherwise there is nothing to set, and an UPDATE without SET clause is not valid
+            update.where(cb.equal(root.get(ShopTwo_.id), changes.getId()));
+            // Same contract as @Modifying(flushAutomatically = true, clearAutomatically = true)
+            em.flush();
+            em.createQuery(update).executeUpdate();
+            em.clear();
+        }
+        return Optional.ofNullable(em.find(ShopTwo.class, changes.getId()));
+    }
+}
@@ -1,12 +1,134 @@
 package morozov.vu.repository;
 
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 import morozov.vu.domain.ShopTwo;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Spring Data SQL repository for the ShopTwo entity.
+ * <p>
+ * {@link #findById} reads through the {@link #SHOP_TWO_BY_ID_CACHE} cache, which every write method of the repository
+ * invalidates. The cache is transaction-aware: the invalidation happens once the transaction of the write commits.
+ * <p>
+ * The lookups by owner, category, email and name prefix are served by the indexes of the
+ * {@code 20220302090000_added_indexes_ShopTwo} changelog.
  */
 @SuppressWarnings("unused")
 @Repository
-public interface ShopTwoRepository extends JpaRepository<ShopTwo, Long> {}
+public interface ShopTwoRepository extends JpaRepository<ShopTwo, Long>, JpaSpecificationExecutor<ShopTwo>, ShopTwoCustomRepository {
+    String SHOP_TWO_BY_ID_CACHE = "morozov.vu.domain.ShopTwo";
+
+    @Override
+    @Cacheable(cacheNames = SHOP_TWO_BY_ID_CACHE, key = "#p0", unless = "#result == null")
+    Optional<ShopTwo> findById(Long id);
+
+    @Override
+    @CacheEvict(cacheNames = SHOP_TWO_BY_ID_CACHE, key = "#p0.id", condition = "#p0.id != null")
+    <S extends ShopTwo> S save(S entity);
+
+    @Override
+    @CacheEvict(cacheNames = SHOP_TWO_BY_ID_CACHE, key = "#p0.id", condition = "#p0.id != null")
+    <S extends ShopTwo> S saveAndFlush(S entity);
+
+    @Override
+    @CacheEvict(cacheNames = SHOP_TWO_BY_ID_CACHE, allEntries = true)
+    <S extends ShopTwo> List<S> saveAll(Iterable<S> entities);
+
+    @Override
+    @CacheEvict(cacheNames = SHOP_TWO_BY_ID_CACHE, allEntries = true)
+    <S extends ShopTwo> List<S> saveAllAndFlush(Iterable<S> entities);
+
+    @Override
+    @CacheEvict(cacheNames = SHOP_TWO_BY_ID_CACHE, key = "#p0")
+    void deleteById(Long id);
+
+    @Override
+    @CacheEvict(cacheNames = SHOP_TWO_BY_ID_CACHE, key = "#p0.id")
+    void delete(ShopTwo entity);
+
+    @Override
+    @CacheEvict(cacheNames = SHOP_TWO_BY_ID_CACHE, allEntries = true)
+    void deleteAllById(Iterable<? extends Long> ids);
+
+    @Override
+    @CacheEvict(cacheNames = SHOP_TWO_BY_ID_CACHE, allEntries = true)
+    void deleteAll(Iterable<? extends ShopTwo> entities);
+
+    @Override
+    @CacheEvict(cacheNames = SHOP_TWO_BY_ID_CACHE, allEntries = true)
+    void deleteAll();
+
+    @Override
+    @CacheEvict(cacheNames = SHOP_TWO_BY_ID_CACHE, allEntries = true)
+    void deleteAllInBatch(Iterable<ShopTwo> entities);
+
+    @Override
+    @CacheEvict(cacheNames = SHOP_TWO_BY_ID_CACHE, allEntries = true)
+    void deleteAllByIdInBatch(Iterable<Long> ids);
+
+    @Override
+    @CacheEvict(cacheNames = SHOP_TWO_BY_ID_CACHE, allEntries = true)
+    void deleteAllInBatch();
+
+    /**
+     * Keyset pagination: the shopTwos whose id is greater than the given one, without counting the matching rows.
+     */
+    List<ShopTwo> findByIdGreaterThan(Long id, Pageable pageable);
+
+    Page<ShopTwo> findByOwner(String owner, Pageable pageable);
+
+    Page<ShopTwo> findByCategory(String category, Pageable pageable);
+
+    List<ShopTwo> findByEmail(String email);
+
+    /**
+     * The shopTwos whose name starts with the given prefix, ignoring case.
+     */
+    default Page<ShopTwo> findByShopNamePrefix(String prefix, Pageable pageable) {
+        return findByLowerShopNameLike(likePrefix(prefix), pageable);
+    }
+
+    /**
+     * Compares {@code lower(shop_name)}, the expression of the name index on PostgreSQL, with a pattern anchored at
+     * its start, so that the index is used; {@link #likePrefix} builds such a pattern.
+     */
+    @Query("select shopTwo from ShopTwo shopTwo where lower(shopTwo.shopName) like :pattern escape '!'")
+    Page<ShopTwo> findByLowerShopNameLike(@Param("pattern") String pattern, Pageable pageable);
+
+    /**
+     * @return the LIKE pattern, escaped with {@code !}, matching the lowercase strings starting with the prefix.
+     */
+    static String likePrefix(String prefix) {
+        String escaped = prefix.toLowerCase(Locale.ROOT).replace("!", "!!").replace("%", "!%").replace("_", "!_");
+        return escaped + "%";
+    }
+
+    /**
+     * Replace all the fields of a shopTwo with one {@code UPDATE} statement, without loading it first.
+     *
+     * @return the number of updated rows, 0 if there is no shopTwo with this id.
+     */
+    @Transactional
+    @CacheEvict(cacheNames = SHOP_TWO_BY_ID_CACHE, key = "#p0")
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(
+        "update ShopTwo shopTwo set shopTwo.shopName = :shopName, shopTwo.owner = :owner, shopTwo.category = :category, " +
+        "shopTwo.email = :email where shopTwo.id = :id"
+    )
+    int updateById(
+        @Param("id") Long id,
+        @Param("shopName") String shopName,
+        @Param("owner") String owner,
+        @Param("category") String category,
+        @Param("email") String email
+    );
+}
@@ -7,6 +7,8 @@ import io.jsonwebtoken.security.SignatureException;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 import morozov.vu.management.SecurityMetersService;
 import org.slf4j.Logger;
@@ -29,6 +31,13 @@ public class TokenProvider {
 
     private static final String INVALID_JWT_TOKEN = "Invalid JWT token.";
 
+    static final int AUTHENTICATION_CACHE_MAX_SIZE = 10_000;
+
+    /**
+     * Minimum time between two sweeps of the expired tokens out of a full authentication cache.
+     */
+    private static final long AUTHENTICATION_CACHE_SWEEP_INTERVAL_MILLIS = 60_000;
+
     private final Key key;
 
     private final JwtParser jwtParser;
@@ -39,6 +48,15 @@ public class TokenProvider {
 
     private final SecurityMetersService securityMetersService;
 
+    /**
+     * Principals and authorities of the tokens already verified, until their expiration.
+     */
+    private final ConcurrentMap<String, CachedAuthentication> authenticationCache = new ConcurrentHashMap<>();
+
+    private int authenticationCacheMaxSize = AUTHENTICATION_CACHE_MAX_SIZE;
+
+    private volatile long nextAuthenticationCacheSweep;
+
     public TokenProvider(JHipsterProperties jHipsterProperties, SecurityMetersService securityMetersService) {
         byte[] keyBytes;
         String secret = jHipsterProperties.getSecurity().getAuthentication().getJwt().getBase64Secret();
@@ -84,7 +102,68 @@ public class TokenProvider {
 
     public Authentication getAuthentication(String token) {
         Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        return toAuthentication(claims, token);
+    }
+
+    public boolean validateToken(String authToken) {
+        return parseClaims(authToken) != null;
+    }
+
+    /**
+     * Validate a token and build its authentication, verifying the token only once.
+     * <p>
+     * The principal and authorities of a valid token are cached until the token expires, so that the following
+     * requests carrying the same token neither verify its signature nor rebuild its authorities. Each request still
+     * gets an authentication of its own, as an authentication is mutable.
+     *
+     * @param token the token.
+     * @return the authentication, or {@code null} if the token is not valid.
+     */
+    public Authentication authenticate(String token) {
+        long now = System.currentTimeMillis();
+        CachedAuthentication cached = authenticationCache.get(token);
+        if (cached != null) {
+            if (cached.expiration > now) {
+                securityMetersService.trackTokenCacheHit();
+                return new UsernamePasswordAuthenticationToken(cached.principal, token, cached.principal.getAuthorities());
+            }
+            authenticationCache.remove(token, cached);
+        }
+        securityMetersService.trackTokenCacheMiss();
+
+        Claims claims = parseClaims(token);
+        if (claims == null) {
+            return null;
+        }
+        Authentication authentication = toAuthentication(claims, token);
+        // Tokens without expiration are never cached, as nothing would bound their lifetime in the cache
+        if (claims.getExpiration() != null) {
+            cache(token, new CachedAuthentication((User) authentication.getPrincipal(), claims.getExpiration().getTime()), now);
+        }
+        return authentication;
+    }
 
+    /**
+     * Cache the principal of a token, making room in a full cache by dropping the expired tokens, at most once per
+     * {@value #AUTHENTICATION_CACHE_SWEEP_INTERVAL_MILLIS} ms, then arbitrary ones, so that a cache full of live tokens
+     * costs no scan.
+     */
+    private void cache(String token, CachedAuthentication cachedAuthentication, long now) {
+        if (authenticationCache.size() >= authenticationCacheMaxSize) {
+            if (now >= nextAuthenticationCacheSweep) {
+                nextAuthenticationCacheSweep = now + AUTHENTICATION_CACHE_SWEEP_INTERVAL_MILLIS;
+                authenticationCache.values().removeIf(cached -> cached.expiration <= now);
+            }
+            Iterator<String> tokens = authenticationCache.keySet().iterator();
+            while (authenticationCache.size() >= authenticationCacheMaxSize && tokens.hasNext()) {
+                tokens.next();
+                tokens.remove();
+            }
+        }
+        authenticationCache.put(token, cachedAuthentication);
+    }
+
+    private Authentication toAuthentication(Claims claims, String token) {
         Collection<? extends GrantedAuthority> authorities = Arrays
             .stream(claims.get(AUTHORITIES_KEY).toString().split(","))
             .filter(auth -> !auth.trim().isEmpty())
@@ -96,11 +175,9 @@ public class TokenProvider {
         return new UsernamePasswordAuthenticationToken(principal, token, authorities);
     }
 
-    public boolean validateToken(String authToken) {
+    private Claims parseClaims(String authToken) {
         try {
-            jwtParser.parseClaimsJws(authToken);
-
-            return true;
+            return jwtParser.parseClaimsJws(authToken).getBody();
         } catch (ExpiredJwtException e) {
             this.securityMetersService.trackTokenExpired();
 
@@ -121,6 +198,18 @@ public class TokenProvider {
             log.error("Token validation error {}", e.getMessage());
         }
 
-        return false;
+        return null;
+    }
+
+    private static class CachedAuthentication {
+
+        private final User principal;
+
+        private final long expiration;
+
+        private CachedAuthentication(User principal, long expiration) {
+            this.principal = principal;
+            this.expiration = expiration;
+        }
     }
 }
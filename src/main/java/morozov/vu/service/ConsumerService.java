@@ -1,17 +1,170 @@
 package morozov.vu.service;
 
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.PreDestroy;
+import morozov.vu.config.KafkaProperties;
 import morozov.vu.domain.ShopTwo;
+import morozov.vu.management.KafkaMetersService;
+import morozov.vu.service.kafka.KeyOrderedExecutor;
+import morozov.vu.service.kafka.ListenerBackpressure;
+import morozov.vu.service.kafka.PollTimestampInterceptor;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.stereotype.Service;
 
 @Service
 public class ConsumerService {
 
-    @KafkaListener(topics = "topic")
-    public void orderListener(ConsumerRecord<Long, ShopTwo> record) {
-        System.out.println(record.partition());
-        System.out.println(record.key());
-        System.out.println(record.value());
+    private final Logger log = LoggerFactory.getLogger(ConsumerService.class);
+
+    private final ShopTwoIngestionService shopTwoIngestionService;
+
+    private final KeyOrderedExecutor keyOrderedExecutor;
+
+    private final KafkaMetersService kafkaMetersService;
+
+    private final ListenerBackpressure backpressure;
+
+    public ConsumerService(
+        ShopTwoIngestionService shopTwoIngestionService,
+        KafkaProperties kafkaProperties,
+        KafkaMetersService kafkaMetersService,
+        ListenerBackpressure backpressure
+    ) {
+        this.shopTwoIngestionService = shopTwoIngestionService;
+        this.kafkaMetersService = kafkaMetersService;
+        this.backpressure = backpressure;
+        int parallelism = kafkaProperties.getListener().getParallelism();
+        this.keyOrderedExecutor = parallelism > 0 ? new KeyOrderedExecutor(parallelism, "consumer-lane-") : null;
+    }
+
+    @KafkaListener(id = KafkaProperties.Listener.ORDER_LISTENER_ID, idIsGroup = false, topics = "${kafka.listener.topic:topic}")
+    public void orderListener(List<ConsumerRecord<Long, ShopTwo>> records) {
+        log.debug("Received a batch of {} records", records.size());
+        long start = System.nanoTime();
+        backpressure.batchReceived(records.size());
+        try {
+            if (keyOrderedExecutor == null) {
+                ingestByChunk(records);
+            } else {
+                ingestByKey(records);
+            }
+            recordLatencies(records);
+        } finally {
+            backpressure.batchCompleted(records.size());
+            long elapsed = System.nanoTime() - start;
+            for (TopicPartition partition : partitionsOf(records)) {
+                kafkaMetersService.recordHandlerTime(partition, elapsed);
+            }
+        }
+    }
+
+    /**
+     * Record, for each persisted record, the time since its poll and since its timestamp.
+     */
+    private void recordLatencies(List<ConsumerRecord<Long, ShopTwo>> records) {
+        long now = System.currentTimeMillis();
+        for (ConsumerRecord<Long, ShopTwo> record : records) {
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            long polledAt = PollTimestampInterceptor.pollTimestamp(record);
+            if (polledAt >= 0) {
+                kafkaMetersService.recordPollToProcess(partition, Math.max(0, now - polledAt));
+            }
+            if (record.timestamp() >= 0) {
+                kafkaMetersService.recordEndToEnd(partition, Math.max(0, now - record.timestamp()));
+            }
+        }
+    }
+
+    private static Set<TopicPartition> partitionsOf(List<ConsumerRecord<Long, ShopTwo>> records) {
+        Set<TopicPartition> partitions = new LinkedHashSet<>();
+        for (ConsumerRecord<Long, ShopTwo> record : records) {
+            partitions.add(new TopicPartition(record.topic(), record.partition()));
+        }
+        return partitions;
+    }
+
+    /**
+     * Persist the batch in chunks sized by the backpressure, one transaction per chunk, so that the transactions get
+     * shorter while the database is slow.
+     */
+    private void ingestByChunk(List<ConsumerRecord<Long, ShopTwo>> records) {
+        int from = 0;
+        while (from < records.size()) {
+            int to = Math.min(records.size(), from + backpressure.chunkSize());
+            List<ConsumerRecord<Long, ShopTwo>> chunk = records.subList(from, to);
+            long start = System.nanoTime();
+            try {
+                shopTwoIngestionService.ingest(chunk);
+            } catch (RuntimeException e) {
+                ingestOneByOne(chunk, e);
+            } finally {
+                backpressure.chunkPersisted(System.nanoTime() - start);
+            }
+            from = to;
+        }
+    }
+
+    /**
+     * Persist the records of a failed chunk one at a time, to find the record which made it fail.
+     * <p>
+     * The error handler is then told to commit the offsets below that record, to hand it over to the retry topics and
+     * to redeliver the records after it, so that one bad record does not send its whole batch to the retry topics.
+     */
+    private void ingestOneByOne(List<ConsumerRecord<Long, ShopTwo>> records, RuntimeException batchFailure) {
+        log.warn("Could not persist a chunk of {} records ({}), persisting them one by one", records.size(), batchFailure.getMessage());
+        for (ConsumerRecord<Long, ShopTwo> record : records) {
+            try {
+                shopTwoIngestionService.ingest(List.of(record));
+            } catch (RuntimeException e) {
+                throw new BatchListenerFailedException(
+                    "Could not persist the record at offset " + record.offset() + " of partition " + record.partition(),
+                    e,
+                    record
+                );
+            }
+        }
+    }
+
+    /**
+     * Spread the batch over the key-ordered lanes, each lane persisting its records in its own transaction.
+     * <p>
+     * Records with the same key stay in order on one lane, and the backpressure is told the time each lane took, as
+     * each lane is a chunk of its own. When a lane fails, the error handler is told to commit the offsets below the
+     * first record of the failed lanes and to redeliver the rest.
+     */
+    private void ingestByKey(List<ConsumerRecord<Long, ShopTwo>> records) {
+        Optional<KeyOrderedExecutor.Failure> failure = keyOrderedExecutor.execute(records, ConsumerRecord::key, this::ingestLane);
+        if (failure.isPresent()) {
+            ConsumerRecord<Long, ShopTwo> failedRecord = records.get(failure.get().getIndex());
+            throw new BatchListenerFailedException(
+                "Could not persist the record at offset " + failedRecord.offset() + " of partition " + failedRecord.partition(),
+                failure.get().getCause(),
+                failedRecord
+            );
+        }
+    }
+
+    private void ingestLane(List<ConsumerRecord<Long, ShopTwo>> records) {
+        long start = System.nanoTime();
+        try {
+            shopTwoIngestionService.ingest(records);
+        } finally {
+            backpressure.chunkPersisted(System.nanoTime() - start);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (keyOrderedExecutor != null) {
+            keyOrderedExecutor.close();
+        }
     }
 }
@@ -0,0 +1,253 @@
+package morozov.vu.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import morozov.vu.config.ApplicationProperties;
+import morozov.vu.domain.ShopTwo;
+import morozov.vu.repository.ShopTwoBulkLoader;
+import morozov.vu.repository.ShopTwoRepository;
+import morozov.vu.service.dto.BulkItemResult;
+import morozov.vu.service.dto.ImportResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service creating, updating and deleting many {@link ShopTwo} at once.
+ * <p>
+ * The items are pulled from an iterator in chunks of {@code application.bulk.chunk-size}; each chunk is persisted and
+ * committed in its own transaction, so that neither the request nor the persistence context grow with the number of
+ * items, and Hibernate sends the statements of a chunk in JDBC batches. A chunk whose transaction fails reports all of
+ * its items as failed, without affecting the chunks committed before it.
+ */
+@Service
+public class ShopTwoBulkService {
+
+    private final Logger log = LoggerFactory.getLogger(ShopTwoBulkService.class);
+
+    private final ShopTwoRepository shopTwoRepository;
+
+    private final ShopTwoBulkLoader shopTwoBulkLoader;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int chunkSize;
+
+    private final int importChunkSize;
+
+    public ShopTwoBulkService(
+        ShopTwoRepository shopTwoRepository,
+        ShopTwoBulkLoader shopTwoBulkLoader,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties
+    ) {
+        this.shopTwoRepository = shopTwoRepository;
+        this.shopTwoBulkLoader = shopTwoBulkLoader;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, applicationProperties.getBulk().getChunkSize());
+        this.importChunkSize = Math.max(1, applicationProperties.getBulk().getImportChunkSize());
+    }
+
+    /**
+     * Import new shopTwos through the {@link ShopTwoBulkLoader}, in chunks of {@code application.bulk.import-chunk-size}.
+     * <p>
+     * Ids are always assigned from the sequence, ignoring those of the items. Unlike the other bulk operations, the
+     * import stops at the first chunk which cannot be read or loaded, so that it can be resumed from there.
+     *
+     * @param shopTwos the shopTwos to import.
+     * @return the number of imported shopTwos, and the error which stopped the import, if any.
+     */
+    public ImportResult importAll(Iterator<ShopTwo> shopTwos) {
+        log.debug("Request to import ShopTwos");
+        long imported = 0;
+        List<ShopTwo> chunk = new ArrayList<>(importChunkSize);
+        try {
+            while (true) {
+                boolean hasNext;
+                try {
+                    hasNext = shopTwos.hasNext();
+                    if (hasNext) {
+                        ShopTwo shopTwo = shopTwos.next();
+                        if (shopTwo != null) {
+                            chunk.add(shopTwo);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    imported += loadChunk(chunk);
+                    return new ImportResult(imported, "Unreadable item: " + e.getMessage());
+                }
+                if (!hasNext || chunk.size() == importChunkSize) {
+                    imported += loadChunk(chunk);
+                    chunk.clear();
+                }
+                if (!hasNext) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Import stopped after {} ShopTwos: {}", imported, e.getMessage());
+            return new ImportResult(imported, e.getMessage());
+        }
+        log.info("Imported {} ShopTwos", imported);
+        return new ImportResult(imported, null);
+    }
+
+    private int loadChunk(List<ShopTwo> chunk) {
+        Integer loaded = transactionTemplate.execute(status -> shopTwoBulkLoader.load(chunk));
+        return Objects.requireNonNull(loaded);
+    }
+
+    /**
+     * Create new shopTwos.
+     *
+     * @param shopTwos the shopTwos to create, without id.
+     * @return the result of each item, in the order of the items.
+     */
+    public List<BulkItemResult> createAll(Iterator<ShopTwo> shopTwos) {
+        log.debug("Request to create ShopTwos in bulk");
+        return process(shopTwos, this::createChunk, ShopTwo::getId);
+    }
+
+    /**
+     * Replace existing shopTwos.
+     *
+     * @param shopTwos the shopTwos to update, with their id.
+     * @return the result of each item, in the order of the items.
+     */
+    public List<BulkItemResult> updateAll(Iterator<ShopTwo> shopTwos) {
+        log.debug("Request to update ShopTwos in bulk");
+        return process(shopTwos, this::updateChunk, ShopTwo::getId);
+    }
+
+    /**
+     * Delete existing shopTwos.
+     *
+     * @param ids the ids of the shopTwos to delete.
+     * @return the result of each item, in the order of the items.
+     */
+    public List<BulkItemResult> deleteAll(Iterator<Long> ids) {
+        log.debug("Request to delete ShopTwos in bulk");
+        return process(ids, this::deleteChunk, Function.identity());
+    }
+
+    private <T> List<BulkItemResult> process(Iterator<T> items, BiFunction<List<T>, Integer, BulkItemResult[]> chunkAction, Function<T, Long> idOf) {
+        List<BulkItemResult> results = new ArrayList<>();
+        List<T> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+        while (true) {
+            try {
+                if (!items.hasNext()) {
+                    break;
+                }
+                chunk.add(items.next());
+            } catch (RuntimeException e) {
+                // The rest of the request cannot be read: keep what was read so far and report where it stopped
+                processChunk(chunk, index - chunk.size(), chunkAction, idOf, results);
+                results.add(BulkItemResult.failure(index, null, "Unreadable item: " + e.getMessage()));
+                return results;
+            }
+            index++;
+            if (chunk.size() == chunkSize) {
+                processChunk(chunk, index - chunk.size(), chunkAction, idOf, results);
+                chunk.clear();
+            }
+        }
+        processChunk(chunk, index - chunk.size(), chunkAction, idOf, results);
+        return results;
+    }
+
+    private <T> void processChunk(
+        List<T> chunk,
+        int firstIndex,
+        BiFunction<List<T>, Integer, BulkItemResult[]> chunkAction,
+        Function<T, Long> idOf,
+        List<BulkItemResult> results
+    ) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        BulkItemResult[] chunkResults;
+        try {
+            chunkResults = transactionTemplate.execute(status -> chunkAction.apply(chunk, firstIndex));
+        } catch (RuntimeException e) {
+            log.warn("Bulk chunk of {} items starting at {} failed: {}", chunk.size(), firstIndex, e.getMessage());
+            chunkResults = new BulkItemResult[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                T item = chunk.get(i);
+                chunkResults[i] = BulkItemResult.failure(firstIndex + i, item != null ? idOf.apply(item) : null, e.getMessage());
+            }
+        }
+        results.addAll(Arrays.asList(Objects.requireNonNull(chunkResults)));
+    }
+
+    private BulkItemResult[] createChunk(List<ShopTwo> chunk, int firstIndex) {
+        BulkItemResult[] results = new BulkItemResult[chunk.size()];
+        List<ShopTwo> toCreate = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            ShopTwo shopTwo = chunk.get(i);
+            if (shopTwo == null) {
+                results[i] = BulkItemResult.failure(firstIndex + i, null, "Empty item");
+            } else if (shopTwo.getId() != null) {
+                results[i] = BulkItemResult.failure(firstIndex + i, shopTwo.getId(), "A new shopTwo cannot already have an ID");
+            } else {
+                toCreate.add(shopTwo);
+            }
+        }
+        shopTwoRepository.saveAll(toCreate);
+        shopTwoRepository.flush();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (results[i] == null) {
+                results[i] = BulkItemResult.success(firstIndex + i, chunk.get(i).getId(), BulkItemResult.Status.CREATED);
+            }
+        }
+        return results;
+    }
+
+    private BulkItemResult[] updateChunk(List<ShopTwo> chunk, int firstIndex) {
+        // One query loads all the existing entities of the chunk, so that merging them does not select them again
+        Set<Long> existingIds = shopTwoRepository
+            .findAllById(chunk.stream().filter(Objects::nonNull).map(ShopTwo::getId).filter(Objects::nonNull).collect(Collectors.toSet()))
+            .stream()
+            .map(ShopTwo::getId)
+            .collect(Collectors.toSet());
+        BulkItemResult[] results = new BulkItemResult[chunk.size()];
+        List<ShopTwo> toUpdate = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            ShopTwo shopTwo = chunk.get(i);
+            if (shopTwo == null || shopTwo.getId() == null) {
+                results[i] = BulkItemResult.failure(firstIndex + i, null, "Invalid id");
+            } else if (!existingIds.contains(shopTwo.getId())) {
+                results[i] = BulkItemResult.failure(firstIndex + i, shopTwo.getId(), "Entity not found");
+            } else {
+                toUpdate.add(shopTwo);
+                results[i] = BulkItemResult.success(firstIndex + i, shopTwo.getId(), BulkItemResult.Status.UPDATED);
+            }
+        }
+        shopTwoRepository.saveAll(toUpdate);
+        shopTwoRepository.flush();
+        return results;
+    }
+
+    private BulkItemResult[] deleteChunk(List<Long> chunk, int firstIndex) {
+        List<ShopTwo> existing = shopTwoRepository.findAllById(chunk.stream().filter(Objects::nonNull).collect(Collectors.toSet()));
+        Set<Long> existingIds = existing.stream().map(ShopTwo::getId).collect(Collectors.toSet());
+        shopTwoRepository.deleteAllInBatch(existing);
+        BulkItemResult[] results = new BulkItemResult[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            Long id = chunk.get(i);
+            results[i] = existingIds.contains(id)
+                ? BulkItemResult.success(firstIndex + i, id, BulkItemResult.Status.DELETED)
+                : BulkItemResult.failure(firstIndex + i, id, "Entity not found");
+        }
+        return results;
+    }
+}
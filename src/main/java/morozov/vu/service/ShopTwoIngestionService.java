@@ -0,0 +1,140 @@
+package morozov.vu.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import morozov.vu.config.KafkaProperties;
+import morozov.vu.domain.ShopTwo;
+import morozov.vu.repository.ShopTwoBulkLoader;
+import morozov.vu.repository.ShopTwoRepository;
+import morozov.vu.service.kafka.KeyOffsetTracker;
+import morozov.vu.service.kafka.ProcessedOffsetTracker;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service persisting {@link ShopTwo} records received from Kafka.
+ */
+@Service
+@Transactional
+public class ShopTwoIngestionService {
+
+    private final Logger log = LoggerFactory.getLogger(ShopTwoIngestionService.class);
+
+    private final ShopTwoRepository shopTwoRepository;
+
+    private final ShopTwoBulkLoader shopTwoBulkLoader;
+
+    private final ProcessedOffsetTracker processedOffsetTracker;
+
+    private final KeyOffsetTracker keyOffsetTracker;
+
+    private final KafkaProperties.Listener.WriteMode writeMode;
+
+    public ShopTwoIngestionService(
+        ShopTwoRepository shopTwoRepository,
+        ShopTwoBulkLoader shopTwoBulkLoader,
+        ProcessedOffsetTracker processedOffsetTracker,
+        KeyOffsetTracker keyOffsetTracker,
+        KafkaProperties kafkaProperties
+    ) {
+        this.shopTwoRepository = shopTwoRepository;
+        this.shopTwoBulkLoader = shopTwoBulkLoader;
+        this.processedOffsetTracker = processedOffsetTracker;
+        this.keyOffsetTracker = keyOffsetTracker;
+        this.writeMode = kafkaProperties.getListener().getWriteMode();
+    }
+
+    /**
+     * Persist the values of a batch of records in a single transaction.
+     * <p>
+     * Records already processed, for instance replayed after a rebalance, are skipped, and the others are recorded as
+     * processed in the same transaction, before their effects, which also skips a record another consumer recorded
+     * meanwhile. Records superseded by a later record of the same key already applied, such as a record back from a
+     * retry topic, are skipped as well, see {@link KeyOffsetTracker}. Records without a value are
+     * skipped, as well as records that carry the id of a shopTwo whose current state, read through the
+     * {@link ShopTwoRepository#SHOP_TWO_BY_ID_CACHE} cache, is already the one of the record. The batch is flushed
+     * once, so that Hibernate groups the statements into JDBC batches of {@code hibernate.jdbc.batch_size}. The new
+     * shopTwos, without id, bypass Hibernate and are inserted together by the {@link ShopTwoBulkLoader}.
+     * <p>
+     * In the {@link KafkaProperties.Listener.WriteMode#UPSERT UPSERT} write mode, the shopTwos are instead written by
+     * {@link ShopTwoBulkLoader#upsert(Map)}, by the key of their record.
+     *
+     * @param records the records to persist.
+     * @return the persisted entities.
+     */
+    public List<ShopTwo> ingest(List<ConsumerRecord<Long, ShopTwo>> records) {
+        log.debug("Request to persist a batch of {} ShopTwo records", records.size());
+        List<ConsumerRecord<Long, ShopTwo>> unprocessed = processedOffsetTracker.markProcessed(
+            processedOffsetTracker.filterUnprocessed(records)
+        );
+        List<ConsumerRecord<Long, ShopTwo>> current = keyOffsetTracker.filterSuperseded(unprocessed);
+        return writeMode == KafkaProperties.Listener.WriteMode.UPSERT ? upsert(current) : save(current);
+    }
+
+    private List<ShopTwo> save(List<ConsumerRecord<Long, ShopTwo>> records) {
+        List<ShopTwo> result = new ArrayList<>(records.size());
+        List<ShopTwo> created = new ArrayList<>();
+        for (ConsumerRecord<Long, ShopTwo> record : records) {
+            ShopTwo shopTwo = record.value();
+            if (shopTwo == null) {
+                continue;
+            }
+            if (shopTwo.getId() == null) {
+                created.add(shopTwo);
+            } else if (!isUnchanged(shopTwo)) {
+                // Saved one by one so that only the cache entries of the saved shopTwos are evicted
+                result.add(shopTwoRepository.save(shopTwo));
+            }
+        }
+        shopTwoRepository.flush();
+        shopTwoBulkLoader.load(created);
+        result.addAll(created);
+        return result;
+    }
+
+    /**
+     * Write the records by key: the key of a record identifies its shopTwo through the {@code external_key} column,
+     * apart from the ids allocated from the sequence, and the id of the value is ignored. When a batch holds several
+     * records of a same key, the last one wins. Records without key are saved as in the
+     * {@link KafkaProperties.Listener.WriteMode#SAVE SAVE} write mode.
+     * <p>
+     * The upserted shopTwos are returned as received: their id is not read back from the database.
+     */
+    private List<ShopTwo> upsert(List<ConsumerRecord<Long, ShopTwo>> records) {
+        Map<Long, ShopTwo> byKey = new LinkedHashMap<>();
+        List<ConsumerRecord<Long, ShopTwo>> unkeyed = new ArrayList<>();
+        for (ConsumerRecord<Long, ShopTwo> record : records) {
+            if (record.value() == null) {
+                continue;
+            }
+            if (record.key() == null) {
+                unkeyed.add(record);
+            } else {
+                byKey.put(record.key(), record.value());
+            }
+        }
+        int written = shopTwoBulkLoader.upsert(byKey);
+        log.debug("Upserted {} ShopTwo records, {} rows written", byKey.size(), written);
+        List<ShopTwo> result = new ArrayList<>(byKey.values());
+        result.addAll(save(unkeyed));
+        return result;
+    }
+
+    private boolean isUnchanged(ShopTwo shopTwo) {
+        return shopTwoRepository
+            .findById(shopTwo.getId())
+            .filter(current ->
+                Objects.equals(current.getShopName(), shopTwo.getShopName()) &&
+                Objects.equals(current.getOwner(), shopTwo.getOwner()) &&
+                Objects.equals(current.getCategory(), shopTwo.getCategory()) &&
+                Objects.equals(current.getEmail(), shopTwo.getEmail())
+            )
+            .isPresent();
+    }
+}
@@ -0,0 +1,136 @@
+package morozov.vu.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.metamodel.SingularAttribute;
+import morozov.vu.domain.ShopTwo;
+import morozov.vu.domain.ShopTwo_;
+import morozov.vu.repository.ShopTwoRepository;
+import morozov.vu.service.criteria.PrefixStringFilter;
+import morozov.vu.service.criteria.ShopTwoCriteria;
+import morozov.vu.service.dto.ShopTwoDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tech.jhipster.service.QueryService;
+
+/**
+ * Service for executing complex queries for {@link ShopTwo} entities in the database.
+ * The main input is a {@link ShopTwoCriteria} which gets converted to {@link Specification},
+ * in a way that all the filters must apply.
+ * It returns a {@link Page} of {@link ShopTwoDTO} which fulfills the criteria, holding only the requested fields.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ShopTwoQueryService extends QueryService<ShopTwo> {
+
+    /**
+     * The fields which can be selected, and sorted on, by name.
+     */
+    public static final Map<String, SingularAttribute<ShopTwo, ?>> FIELDS;
+
+    static {
+        Map<String, SingularAttribute<ShopTwo, ?>> fields = new LinkedHashMap<>();
+        fields.put(ShopTwo_.ID, ShopTwo_.id);
+        fields.put(ShopTwo_.SHOP_NAME, ShopTwo_.shopName);
+        fields.put(ShopTwo_.OWNER, ShopTwo_.owner);
+        fields.put(ShopTwo_.CATEGORY, ShopTwo_.category);
+        fields.put(ShopTwo_.EMAIL, ShopTwo_.email);
+        FIELDS = Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * The prefix filters compare the lowercase values with this escape character, as the repository does.
+     */
+    private static final char LIKE_ESCAPE = '!';
+
+    private final Logger log = LoggerFactory.getLogger(ShopTwoQueryService.class);
+
+    private final ShopTwoRepository shopTwoRepository;
+
+    public ShopTwoQueryService(ShopTwoRepository shopTwoRepository) {
+        this.shopTwoRepository = shopTwoRepository;
+    }
+
+    /**
+     * Return a {@link Page} of {@link ShopTwoDTO} which matches the criteria from the database.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param fields The names of the fields to select, all of them when empty; the id is always selected.
+     * @param page The page, which should be returned.
+     * @return the matching entities.
+     * @throws IllegalArgumentException if a field is not in {@link #FIELDS}.
+     */
+    public Page<ShopTwoDTO> findByCriteria(ShopTwoCriteria criteria, Collection<String> fields, Pageable page) {
+        log.debug("find by criteria : {}, fields : {}, page: {}", criteria, fields, page);
+        final Specification<ShopTwo> specification = createSpecification(criteria);
+        return shopTwoRepository.findAllSelecting(specification, toAttributes(fields), page).map(ShopTwoDTO::new);
+    }
+
+    private static List<SingularAttribute<ShopTwo, ?>> toAttributes(Collection<String> fields) {
+        if (fields.isEmpty()) {
+            return new ArrayList<>(FIELDS.values());
+        }
+        List<SingularAttribute<ShopTwo, ?>> attributes = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            SingularAttribute<ShopTwo, ?> attribute = FIELDS.get(field);
+            if (attribute == null) {
+                throw new IllegalArgumentException("Unknown ShopTwo field: " + field);
+            }
+            attributes.add(attribute);
+        }
+        return attributes;
+    }
+
+    /**
+     * Function to convert {@link ShopTwoCriteria} to a {@link Specification}
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @return the matching {@link Specification} of the entity.
+     */
+    protected Specification<ShopTwo> createSpecification(ShopTwoCriteria criteria) {
+        Specification<ShopTwo> specification = Specification.where(null);
+        if (criteria != null) {
+            // This has to be called first, because the distinct method returns null
+            if (criteria.getDistinct() != null) {
+                specification = specification.and(distinct(criteria.getDistinct()));
+            }
+            if (criteria.getId() != null) {
+                specification = specification.and(buildRangeSpecification(criteria.getId(), ShopTwo_.id));
+            }
+            if (criteria.getShopName() != null) {
+                specification = specification.and(buildPrefixStringSpecification(criteria.getShopName(), ShopTwo_.shopName));
+            }
+            if (criteria.getOwner() != null) {
+                specification = specification.and(buildPrefixStringSpecification(criteria.getOwner(), ShopTwo_.owner));
+            }
+            if (criteria.getCategory() != null) {
+                specification = specification.and(buildPrefixStringSpecification(criteria.getCategory(), ShopTwo_.category));
+            }
+            if (criteria.getEmail() != null) {
+                specification = specification.and(buildPrefixStringSpecification(criteria.getEmail(), ShopTwo_.email));
+            }
+        }
+        return specification;
+    }
+
+    /**
+     * The string specification of the filter, and {@code lower(field) like 'prefix%'} for its prefix: the expression
+     * of the name index on PostgreSQL, so that the name prefix lookups do not scan the table.
+     */
+    private Specification<ShopTwo> buildPrefixStringSpecification(PrefixStringFilter filter, SingularAttribute<ShopTwo, String> field) {
+        Specification<ShopTwo> specification = buildStringSpecification(filter, field);
+        if (filter.getStartsWith() != null) {
+            String pattern = ShopTwoRepository.likePrefix(filter.getStartsWith());
+            specification =
+                specification.and((root, query, builder) -> builder.like(builder.lower(root.get(field)), pattern, LIKE_ESCAPE));
+        }
+        return specification;
+    }
+}
@@ -0,0 +1,85 @@
+package morozov.vu.service;
+
+import java.util.List;
+import morozov.vu.domain.ShopTwo;
+import morozov.vu.management.KafkaMetersService;
+import morozov.vu.service.kafka.RetryTopicPublisher;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.listener.AcknowledgingMessageListener;
+import org.springframework.kafka.support.Acknowledgment;
+
+/**
+ * Listener of one retry topic of the ShopTwo listener.
+ * <p>
+ * Records of a retry topic are in the order they failed and all wait the same delay, so when the first pending record
+ * is not due yet, none of the following ones is: the listener then nacks it, which seeks back and sleeps this
+ * consumer only, until the record is due. A record failing again is sent to the next stage; if it cannot be sent, it
+ * is nacked and redelivered rather than acknowledged.
+ * <p>
+ * Used with a record listener container in {@code MANUAL} ack mode.
+ */
+public class ShopTwoRetryListener implements AcknowledgingMessageListener<Long, ShopTwo> {
+
+    /**
+     * Longest sleep of the consumer at a time, well below {@code max.poll.interval.ms}.
+     */
+    private static final long MAX_SLEEP_MILLIS = 30_000;
+
+    /**
+     * Sleep of the consumer before a record which could not be forwarded to the next stage is redelivered.
+     */
+    private static final long FORWARD_BACKOFF_MILLIS = 5_000;
+
+    private final Logger log = LoggerFactory.getLogger(ShopTwoRetryListener.class);
+
+    private final String stage;
+
+    private final ShopTwoIngestionService shopTwoIngestionService;
+
+    private final RetryTopicPublisher retryTopicPublisher;
+
+    private final KafkaMetersService kafkaMetersService;
+
+    public ShopTwoRetryListener(
+        int stage,
+        ShopTwoIngestionService shopTwoIngestionService,
+        RetryTopicPublisher retryTopicPublisher,
+        KafkaMetersService kafkaMetersService
+    ) {
+        this.stage = RetryTopicPublisher.stageName(stage);
+        this.shopTwoIngestionService = shopTwoIngestionService;
+        this.retryTopicPublisher = retryTopicPublisher;
+        this.kafkaMetersService = kafkaMetersService;
+    }
+
+    @Override
+    public void onMessage(ConsumerRecord<Long, ShopTwo> record, Acknowledgment acknowledgment) {
+        long wait = RetryTopicPublisher.dueAt(record) - System.currentTimeMillis();
+        if (wait > 0) {
+            acknowledgment.nack(Math.min(wait, MAX_SLEEP_MILLIS));
+            return;
+        }
+        try {
+            shopTwoIngestionService.ingest(List.of(record));
+            kafkaMetersService.trackRetryRecovered(stage);
+            log.debug("Record at offset {} of {} persisted by {}", record.offset(), record.topic(), stage);
+        } catch (RuntimeException e) {
+            try {
+                retryTopicPublisher.forward(record, e);
+            } catch (RuntimeException forwardFailure) {
+                // Acknowledging would lose the record: it is redelivered, and ingested again, once the broker is back
+                log.error(
+                    "Could not forward the record at offset {} of {}, redelivering it",
+                    record.offset(),
+                    record.topic(),
+                    forwardFailure
+                );
+                acknowledgment.nack(FORWARD_BACKOFF_MILLIS);
+                return;
+            }
+        }
+        acknowledgment.acknowledge();
+    }
+}
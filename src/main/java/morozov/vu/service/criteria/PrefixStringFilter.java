@@ -0,0 +1,61 @@
+package morozov.vu.service.criteria;
+
+import java.util.Objects;
+import tech.jhipster.service.filter.StringFilter;
+
+/**
+ * {@link StringFilter} which can also match the values starting with a given prefix, ignoring case.
+ * <p>
+ * Unlike {@code contains}, which can only scan, a prefix lookup can be served by an index on the lowercase value.
+ */
+public class PrefixStringFilter extends StringFilter {
+
+    private static final long serialVersionUID = 1L;
+
+    private String startsWith;
+
+    public PrefixStringFilter() {}
+
+    public PrefixStringFilter(PrefixStringFilter filter) {
+        super(filter);
+        this.startsWith = filter.startsWith;
+    }
+
+    @Override
+    public PrefixStringFilter copy() {
+        return new PrefixStringFilter(this);
+    }
+
+    public String getStartsWith() {
+        return startsWith;
+    }
+
+    public PrefixStringFilter setStartsWith(String startsWith) {
+        this.startsWith = startsWith;
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        if (!super.equals(o)) {
+            return false;
+        }
+        return Objects.equals(startsWith, ((PrefixStringFilter) o).startsWith);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), startsWith);
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + (startsWith != null ? "[startsWith=" + startsWith + "]" : "");
+    }
+}
@@ -0,0 +1,170 @@
+package morozov.vu.service.criteria;
+
+import java.io.Serializable;
+import java.util.Objects;
+import org.springdoc.api.annotations.ParameterObject;
+import tech.jhipster.service.Criteria;
+import tech.jhipster.service.filter.LongFilter;
+
+/**
+ * Criteria class for the {@link morozov.vu.domain.ShopTwo} entity. This class is used
+ * in {@link morozov.vu.web.rest.ShopTwoResource} to receive all the possible filtering options from
+ * the Http GET request parameters.
+ * For example the following could be a valid request:
+ * {@code /shop-twos/search?id.greaterThan=5&shopName.startsWith=abc&category.in=books,food}
+ * As Spring is unable to properly convert the types, unless specific {@link tech.jhipster.service.filter.Filter} class are used, we need to use
+ * fix type specific filters.
+ */
+@ParameterObject
+public class ShopTwoCriteria implements Serializable, Criteria {
+
+    private static final long serialVersionUID = 1L;
+
+    private LongFilter id;
+
+    private PrefixStringFilter shopName;
+
+    private PrefixStringFilter owner;
+
+    private PrefixStringFilter category;
+
+    private PrefixStringFilter email;
+
+    private Boolean distinct;
+
+    public ShopTwoCriteria() {}
+
+    public ShopTwoCriteria(ShopTwoCriteria other) {
+        this.id = other.id == null ? null : other.id.copy();
+        this.shopName = other.shopName == null ? null : other.shopName.copy();
+        this.owner = other.owner == null ? null : other.owner.copy();
+        this.category = other.category == null ? null : other.category.copy();
+        this.email = other.email == null ? null : other.email.copy();
+        this.distinct = other.distinct;
+    }
+
+    @Override
+    public ShopTwoCriteria copy() {
+        return new ShopTwoCriteria(this);
+    }
+
+    public LongFilter getId() {
+        return id;
+    }
+
+    public LongFilter id() {
+        if (id == null) {
+            id = new LongFilter();
+        }
+        return id;
+    }
+
+    public void setId(LongFilter id) {
+        this.id = id;
+    }
+
+    public PrefixStringFilter getShopName() {
+        return shopName;
+    }
+
+    public PrefixStringFilter shopName() {
+        if (shopName == null) {
+            shopName = new PrefixStringFilter();
+        }
+        return shopName;
+    }
+
+    public void setShopName(PrefixStringFilter shopName) {
+        this.shopName = shopName;
+    }
+
+    public PrefixStringFilter getOwner() {
+        return owner;
+    }
+
+    public PrefixStringFilter owner() {
+        if (owner == null) {
+            owner = new PrefixStringFilter();
+        }
+        return owner;
+    }
+
+    public void setOwner(PrefixStringFilter owner) {
+        this.owner = owner;
+    }
+
+    public PrefixStringFilter getCategory() {
+        return category;
+    }
+
+    public PrefixStringFilter category() {
+        if (category == null) {
+            category = new PrefixStringFilter();
+        }
+        return category;
+    }
+
+    public void setCategory(PrefixStringFilter category) {
+        this.category = category;
+    }
+
+    public PrefixStringFilter getEmail() {
+        return email;
+    }
+
+    public PrefixStringFilter email() {
+        if (email == null) {
+            email = new PrefixStringFilter();
+        }
+        return email;
+    }
+
+    public void setEmail(PrefixStringFilter email) {
+        this.email = email;
+    }
+
+    public Boolean getDistinct() {
+        return distinct;
+    }
+
+    public void setDistinct(Boolean distinct) {
+        this.distinct = distinct;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final ShopTwoCriteria that = (ShopTwoCriteria) o;
+        return (
+            Objects.equals(id, that.id) &&
+            Objects.equals(shopName, that.shopName) &&
+            Objects.equals(owner, that.owner) &&
+            Objects.equals(category, that.category) &&
+            Objects.equals(email, that.email) &&
+            Objects.equals(distinct, that.distinct)
+        );
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, shopName, owner, category, email, distinct);
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ShopTwoCriteria{" +
+            (id != null ? "id=" + id + ", " : "") +
+            (shopName != null ? "shopName=" + shopName + ", " : "") +
+            (owner != null ? "owner=" + owner + ", " : "") +
+            (category != null ? "category=" + category + ", " : "") +
+            (email != null ? "email=" + email + ", " : "") +
+            (distinct != null ? "distinct=" + distinct + ", " : "") +
+            "}";
+    }
+}
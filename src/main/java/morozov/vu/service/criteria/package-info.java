@@ -0,0 +1,4 @@
+/**
+ * Criteria of the query services, bound from the request parameters.
+ */
+package morozov.vu.service.criteria;
@@ -0,0 +1,73 @@
+package morozov.vu.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.io.Serializable;
+
+/**
+ * The outcome of one item of a bulk request.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkItemResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        DELETED,
+        FAILED
+    }
+
+    private final int index;
+
+    private final Long id;
+
+    private final Status status;
+
+    private final String error;
+
+    private BulkItemResult(int index, Long id, Status status, String error) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.error = error;
+    }
+
+    public static BulkItemResult success(int index, Long id, Status status) {
+        return new BulkItemResult(index, id, status, null);
+    }
+
+    public static BulkItemResult failure(int index, Long id, String error) {
+        return new BulkItemResult(index, id, Status.FAILED, error);
+    }
+
+    /**
+     * @return the position of the item in the request, starting at 0.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "BulkItemResult{" +
+            "index=" + getIndex() +
+            ", id=" + getId() +
+            ", status=" + getStatus() +
+            ", error='" + getError() + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,38 @@
+package morozov.vu.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.io.Serializable;
+
+/**
+ * The outcome of an import: the number of items committed, and the error which stopped the import, if any.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long imported;
+
+    private final String error;
+
+    public ImportResult(long imported, String error) {
+        this.imported = imported;
+        this.error = error;
+    }
+
+    /**
+     * @return the number of items imported, from the start of the request.
+     */
+    public long getImported() {
+        return imported;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportResult{imported=" + imported + ", error='" + error + "'}";
+    }
+}
@@ -0,0 +1,108 @@
+package morozov.vu.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.io.Serializable;
+import java.util.Objects;
+import morozov.vu.domain.ShopTwo;
+
+/**
+ * A DTO for the {@link ShopTwo} entity, holding only the fields which were selected: the others, as well as the null
+ * values, are left out of the JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ShopTwoDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+
+    private String shopName;
+
+    private String owner;
+
+    private String category;
+
+    private String email;
+
+    public ShopTwoDTO() {}
+
+    public ShopTwoDTO(ShopTwo shopTwo) {
+        this.id = shopTwo.getId();
+        this.shopName = shopTwo.getShopName();
+        this.owner = shopTwo.getOwner();
+        this.category = shopTwo.getCategory();
+        this.email = shopTwo.getEmail();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getShopName() {
+        return shopName;
+    }
+
+    public void setShopName(String shopName) {
+        this.shopName = shopName;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ShopTwoDTO)) {
+            return false;
+        }
+        ShopTwoDTO shopTwoDTO = (ShopTwoDTO) o;
+        if (this.id == null) {
+            return false;
+        }
+        return Objects.equals(this.id, shopTwoDTO.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.id);
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ShopTwoDTO{" +
+            "id=" + getId() +
+            ", shopName='" + getShopName() + "'" +
+            ", owner='" + getOwner() + "'" +
+            ", category='" + getCategory() + "'" +
+            ", email='" + getEmail() + "'" +
+            "}";
+    }
+}
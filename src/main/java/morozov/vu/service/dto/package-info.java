@@ -0,0 +1,4 @@
+/**
+ * Data Transfer Objects.
+ */
+package morozov.vu.service.dto;
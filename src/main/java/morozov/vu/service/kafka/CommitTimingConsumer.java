@@ -0,0 +1,70 @@
+package morozov.vu.service.kafka;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Map;
+import morozov.vu.management.KafkaMetersService;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * Wraps a {@link Consumer} to time its synchronous offset commits, per committed partition.
+ * <p>
+ * Applied as a post-processor of the consumer factory, so that the commits made by the listener containers are
+ * timed without changing them.
+ */
+public final class CommitTimingConsumer implements InvocationHandler {
+
+    private final Consumer<?, ?> delegate;
+
+    private final KafkaMetersService kafkaMetersService;
+
+    private CommitTimingConsumer(Consumer<?, ?> delegate, KafkaMetersService kafkaMetersService) {
+        this.delegate = delegate;
+        this.kafkaMetersService = kafkaMetersService;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> Consumer<K, V> wrap(Consumer<K, V> consumer, KafkaMetersService kafkaMetersService) {
+        return (Consumer<K, V>) Proxy.newProxyInstance(
+            CommitTimingConsumer.class.getClassLoader(),
+            new Class<?>[] { Consumer.class },
+            new CommitTimingConsumer(consumer, kafkaMetersService)
+        );
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (!"commitSync".equals(method.getName())) {
+            return call(method, args);
+        }
+        long start = System.nanoTime();
+        Object result = call(method, args);
+        long elapsed = System.nanoTime() - start;
+        for (TopicPartition partition : committedPartitions(args)) {
+            kafkaMetersService.recordCommitTime(partition, elapsed);
+        }
+        return result;
+    }
+
+    private Collection<TopicPartition> committedPartitions(Object[] args) {
+        if (args != null && args.length > 0 && args[0] instanceof Map) {
+            @SuppressWarnings("unchecked")
+            Map<TopicPartition, ?> offsets = (Map<TopicPartition, ?>) args[0];
+            return offsets.keySet();
+        }
+        // commitSync() commits the consumed offsets of all the assigned partitions
+        return delegate.assignment();
+    }
+
+    private Object call(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package morozov.vu.service.kafka;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of 64-bit hashes, safe for concurrent use without locks.
+ * <p>
+ * Bits are set with compare-and-set on an {@link AtomicLongArray}, so {@link #put} and {@link #mightContain} can run
+ * from any number of threads: a concurrent read may miss a hash being added, never report one that was not. The
+ * filter never answers {@code false} for a hash that was added; it answers {@code true} for an absent hash with a
+ * probability close to the configured false positive rate, as long as no more than the expected number of hashes
+ * were added.
+ */
+public class ConcurrentBloomFilter {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final AtomicLongArray words;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    public ConcurrentBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException("expectedInsertions must be positive: " + expectedInsertions);
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1: " + falsePositiveRate);
+        }
+        // m = -n ln(p) / ln(2)^2 and k = m / n ln(2)
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    public void put(long hash) {
+        long h1 = mix(hash);
+        long h2 = mix(h1 + GOLDEN_GAMMA) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+    }
+
+    public boolean mightContain(long hash) {
+        long h1 = mix(hash);
+        long h2 = mix(h1 + GOLDEN_GAMMA) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long bitCount() {
+        return bitCount;
+    }
+
+    int hashCount() {
+        return hashCount;
+    }
+
+    /**
+     * The finalizer of MurmurHash3, which spreads structured keys (consecutive offsets, ...) over the whole filter.
+     * The second hash of the double hashing is forced odd so that the probes never cycle early.
+     */
+    private static long mix(long hash) {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
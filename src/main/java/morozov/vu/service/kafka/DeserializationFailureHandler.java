@@ -0,0 +1,19 @@
+package morozov.vu.service.kafka;
+
+import org.apache.kafka.common.header.Headers;
+
+/**
+ * Side channel receiving the payloads a deserializer could not read, in place of failing the consumer.
+ */
+@FunctionalInterface
+public interface DeserializationFailureHandler {
+    /**
+     * Handle a payload which could not be deserialized.
+     *
+     * @param topic the topic the record was read from.
+     * @param headers the record headers, may be {@code null}.
+     * @param data the raw payload.
+     * @param cause the deserialization error.
+     */
+    void handle(String topic, Headers headers, byte[] data, Exception cause);
+}
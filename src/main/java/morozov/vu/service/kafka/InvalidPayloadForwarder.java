@@ -0,0 +1,56 @@
+package morozov.vu.service.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import javax.annotation.PreDestroy;
+import morozov.vu.config.KafkaProperties;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * {@link DeserializationFailureHandler} forwarding unreadable payloads, untouched, to the {@code <topic>-invalid}
+ * topic so that they can be inspected and replayed.
+ */
+@Service
+public class InvalidPayloadForwarder implements DeserializationFailureHandler {
+
+    public static final String INVALID_TOPIC_SUFFIX = "-invalid";
+
+    public static final String EXCEPTION_HEADER = "invalid-payload-exception";
+
+    private final Logger log = LoggerFactory.getLogger(InvalidPayloadForwarder.class);
+
+    private final KafkaProducer<byte[], byte[]> producer;
+
+    public InvalidPayloadForwarder(KafkaProperties kafkaProperties) {
+        Map<String, Object> producerProps = kafkaProperties.getProducerProps();
+        producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        this.producer = new KafkaProducer<>(producerProps);
+    }
+
+    @Override
+    public void handle(String topic, Headers headers, byte[] data, Exception cause) {
+        ProducerRecord<byte[], byte[]> record = new ProducerRecord<>(topic + INVALID_TOPIC_SUFFIX, null, null, data, headers);
+        record.headers().add(EXCEPTION_HEADER, String.valueOf(cause.getMessage()).getBytes(StandardCharsets.UTF_8));
+        producer.send(
+            record,
+            (metadata, exception) -> {
+                if (exception != null) {
+                    log.error("Could not forward an invalid payload from topic {}", topic, exception);
+                }
+            }
+        );
+    }
+
+    @PreDestroy
+    public void destroy() {
+        producer.close();
+    }
+}
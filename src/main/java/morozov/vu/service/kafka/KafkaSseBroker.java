@@ -0,0 +1,241 @@
+package morozov.vu.service.kafka;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import morozov.vu.config.KafkaProperties;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.errors.WakeupException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Fans Kafka records out to Server-Sent Events subscribers.
+ * <p>
+ * A single consumer, polling on its own thread, is shared by all the subscribers of a topic: it is started with the
+ * first subscriber and closed with the last one. Each subscriber owns a bounded buffer drained by a small, fixed pool
+ * of sender threads, so a slow client never holds the consumer back: once its buffer is full, either its oldest
+ * events are dropped or it is disconnected, depending on the configured {@link KafkaProperties.Sse.OverflowPolicy}.
+ */
+@Service
+public class KafkaSseBroker {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(5);
+
+    private static final Object HEARTBEAT = new Object();
+
+    private final Logger log = LoggerFactory.getLogger(KafkaSseBroker.class);
+
+    private final KafkaProperties kafkaProperties;
+
+    private final Map<String, TopicFeed> feeds = new ConcurrentHashMap<>();
+
+    private final ExecutorService senders;
+
+    public KafkaSseBroker(KafkaProperties kafkaProperties) {
+        this.kafkaProperties = kafkaProperties;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.senders =
+            Executors.newFixedThreadPool(
+                kafkaProperties.getSse().getSenderThreads(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "sse-sender-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            );
+    }
+
+    /**
+     * Subscribe a new SSE client to the given topics.
+     *
+     * @param topics the topics to stream.
+     * @return the emitter of the client.
+     */
+    public SseEmitter subscribe(List<String> topics) {
+        SseEmitter emitter = new SseEmitter(0L);
+        KafkaProperties.Sse sse = kafkaProperties.getSse();
+        Subscriber subscriber = new Subscriber(emitter, sse.getBufferSize(), sse.getOverflowPolicy());
+        Runnable unsubscribe = () -> unsubscribe(topics, subscriber);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        synchronized (feeds) {
+            for (String topic : topics) {
+                feeds.computeIfAbsent(topic, this::startFeed).subscribers.add(subscriber);
+            }
+        }
+        return emitter;
+    }
+
+    private void unsubscribe(List<String> topics, Subscriber subscriber) {
+        subscriber.closed = true;
+        synchronized (feeds) {
+            for (String topic : topics) {
+                TopicFeed feed = feeds.get(topic);
+                if (feed != null && feed.subscribers.remove(subscriber) && feed.subscribers.isEmpty()) {
+                    feeds.remove(topic);
+                    feed.stop();
+                }
+            }
+        }
+    }
+
+    private TopicFeed startFeed(String topic) {
+        log.debug("Starting the shared SSE consumer of topic {}", topic);
+        TopicFeed feed = new TopicFeed(topic, new KafkaConsumer<>(kafkaProperties.getConsumerProps()));
+        Thread thread = new Thread(feed, "sse-feed-" + topic);
+        thread.setDaemon(true);
+        thread.start();
+        return feed;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        synchronized (feeds) {
+            feeds.values().forEach(TopicFeed::stop);
+            feeds.clear();
+        }
+        senders.shutdownNow();
+    }
+
+    private final class TopicFeed implements Runnable {
+
+        private final String topic;
+
+        private final KafkaConsumer<String, String> consumer;
+
+        private final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+
+        private volatile boolean running = true;
+
+        private TopicFeed(String topic, KafkaConsumer<String, String> consumer) {
+            this.topic = topic;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void run() {
+            try {
+                consumer.subscribe(Collections.singletonList(topic));
+                while (running) {
+                    ConsumerRecords<String, String> records = consumer.poll(POLL_TIMEOUT);
+                    for (ConsumerRecord<String, String> record : records) {
+                        if (record.value() != null) {
+                            subscribers.forEach(subscriber -> subscriber.offer(record.value()));
+                        }
+                    }
+                    subscribers.forEach(subscriber -> subscriber.offer(HEARTBEAT));
+                }
+            } catch (WakeupException e) {
+                log.trace("Shared SSE consumer of topic {} woken up", topic);
+            } catch (Exception e) {
+                log.warn("Shared SSE consumer of topic {} failed: {}", topic, e.getMessage(), e);
+                synchronized (feeds) {
+                    feeds.remove(topic, this);
+                }
+                subscribers.forEach(subscriber -> subscriber.emitter.completeWithError(e));
+            } finally {
+                consumer.close();
+                log.debug("Stopped the shared SSE consumer of topic {}", topic);
+            }
+        }
+
+        private void stop() {
+            running = false;
+            consumer.wakeup();
+        }
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private final int capacity;
+
+        private final KafkaProperties.Sse.OverflowPolicy overflowPolicy;
+
+        private final ArrayDeque<Object> buffer;
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter, int capacity, KafkaProperties.Sse.OverflowPolicy overflowPolicy) {
+            this.emitter = emitter;
+            this.capacity = capacity;
+            this.overflowPolicy = overflowPolicy;
+            this.buffer = new ArrayDeque<>(capacity);
+        }
+
+        private void offer(Object event) {
+            boolean disconnect = false;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (buffer.size() >= capacity) {
+                    if (overflowPolicy == KafkaProperties.Sse.OverflowPolicy.DISCONNECT) {
+                        closed = true;
+                        buffer.clear();
+                        disconnect = true;
+                    } else {
+                        buffer.pollFirst();
+                    }
+                }
+                if (!disconnect) {
+                    buffer.addLast(event);
+                }
+            }
+            if (disconnect) {
+                log.debug("Disconnecting a slow SSE client");
+                emitter.complete();
+            } else if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    Object event;
+                    synchronized (this) {
+                        event = buffer.pollFirst();
+                        if (event == null) {
+                            draining.set(false);
+                            return;
+                        }
+                    }
+                    if (event == HEARTBEAT) {
+                        emitter.send(SseEmitter.event().comment(""));
+                    } else {
+                        emitter.send(event);
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.trace("Complete with error {}", e.getMessage(), e);
+                synchronized (this) {
+                    closed = true;
+                    buffer.clear();
+                    draining.set(false);
+                }
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package morozov.vu.service.kafka;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import morozov.vu.config.KafkaProperties;
+import morozov.vu.repository.AppliedKeyOffsetRepository;
+import morozov.vu.repository.AppliedKeyOffsetRepository.Position;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the records of a key in the order of their source topic across the retry topics.
+ * <p>
+ * A record which failed waits in a retry topic while the following records of its key are persisted from the main
+ * topic; once due, it must not overwrite them. The position in the source topic of the last record applied for each
+ * key is kept in the {@code applied_key_offset} table, within the transaction holding its effects, and a record whose
+ * key already saw a later record is skipped. The rows of the keys are locked until the end of the transaction, so
+ * that the main and the retry listeners cannot both apply a record of the same key at the same time.
+ * <p>
+ * Without retry topics the records of a key are always persisted in order, and nothing is tracked.
+ */
+@Service
+public class KeyOffsetTracker {
+
+    private final Logger log = LoggerFactory.getLogger(KeyOffsetTracker.class);
+
+    private final AppliedKeyOffsetRepository appliedKeyOffsetRepository;
+
+    private final boolean enabled;
+
+    public KeyOffsetTracker(AppliedKeyOffsetRepository appliedKeyOffsetRepository, KafkaProperties kafkaProperties) {
+        this.appliedKeyOffsetRepository = appliedKeyOffsetRepository;
+        this.enabled = kafkaProperties.getRetry().isEnabled();
+    }
+
+    /**
+     * Drop the records superseded by a record of the same key already applied, and record the others as the last
+     * applied of their key, within the current transaction.
+     *
+     * @return the records to apply, in their original order; records without key are always kept.
+     */
+    public <V> List<ConsumerRecord<Long, V>> filterSuperseded(List<ConsumerRecord<Long, V>> records) {
+        if (!enabled || records.isEmpty()) {
+            return records;
+        }
+        Map<String, Set<Long>> keysByTopic = new HashMap<>();
+        for (ConsumerRecord<Long, V> record : records) {
+            if (record.key() != null) {
+                keysByTopic.computeIfAbsent(RetryTopicPublisher.originTopic(record), topic -> new LinkedHashSet<>()).add(record.key());
+            }
+        }
+        if (keysByTopic.isEmpty()) {
+            return records;
+        }
+        Map<String, Map<Long, Position>> appliedByTopic = new HashMap<>();
+        keysByTopic.forEach((topic, keys) -> appliedByTopic.put(topic, appliedKeyOffsetRepository.lockApplied(topic, keys)));
+
+        Map<String, Map<Long, Position>> latestByTopic = new HashMap<>();
+        List<ConsumerRecord<Long, V>> current = new ArrayList<>(records.size());
+        for (ConsumerRecord<Long, V> record : records) {
+            if (record.key() == null) {
+                current.add(record);
+                continue;
+            }
+            String topic = RetryTopicPublisher.originTopic(record);
+            Position position = new Position(RetryTopicPublisher.originPartition(record), RetryTopicPublisher.originOffset(record));
+            Position applied = appliedByTopic.get(topic).get(record.key());
+            if (applied != null && applied.supersedes(position)) {
+                log.info("Skipping the record {} of {}, key {} already applied at {}", position, topic, record.key(), applied);
+                continue;
+            }
+            current.add(record);
+            latestByTopic.computeIfAbsent(topic, t -> new HashMap<>()).put(record.key(), position);
+        }
+        latestByTopic.forEach(appliedKeyOffsetRepository::saveApplied);
+        return current;
+    }
+}
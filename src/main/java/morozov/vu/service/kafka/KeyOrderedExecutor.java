@@ -0,0 +1,128 @@
+package morozov.vu.service.kafka;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs work on a fixed set of single-threaded lanes chosen from a key.
+ * <p>
+ * Items sharing a key always land on the same lane and are handled there in their original order, while items with
+ * different keys may be handled in parallel on other lanes.
+ */
+public class KeyOrderedExecutor implements AutoCloseable {
+
+    private final ExecutorService[] lanes;
+
+    public KeyOrderedExecutor(int parallelism, String threadNamePrefix) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be positive: " + parallelism);
+        }
+        this.lanes = new ExecutorService[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            String threadName = threadNamePrefix + i;
+            lanes[i] =
+                Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        }
+    }
+
+    public int getParallelism() {
+        return lanes.length;
+    }
+
+    /**
+     * Split the items by lane, run the action once per non-empty lane with the items of that lane, and wait until all
+     * lanes are done.
+     *
+     * @param items the items to handle.
+     * @param keyFunction the function giving the ordering key of an item.
+     * @param action the action handling the items of a lane, in their original order.
+     * @param <T> the type of the items.
+     * @return the failure of the lane holding the lowest item index, if any lane failed.
+     */
+    public <T> Optional<Failure> execute(List<T> items, Function<? super T, ?> keyFunction, Consumer<List<T>> action) {
+        List<List<Integer>> indexesByLane = new ArrayList<>(lanes.length);
+        for (int i = 0; i < lanes.length; i++) {
+            indexesByLane.add(new ArrayList<>());
+        }
+        for (int i = 0; i < items.size(); i++) {
+            indexesByLane.get(laneOf(keyFunction.apply(items.get(i)))).add(i);
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(lanes.length);
+        for (int lane = 0; lane < lanes.length; lane++) {
+            List<Integer> indexes = indexesByLane.get(lane);
+            if (indexes.isEmpty()) {
+                futures.add(null);
+                continue;
+            }
+            List<T> laneItems = new ArrayList<>(indexes.size());
+            for (Integer index : indexes) {
+                laneItems.add(items.get(index));
+            }
+            futures.add(CompletableFuture.runAsync(() -> action.accept(laneItems), lanes[lane]));
+        }
+
+        Failure failure = null;
+        for (int lane = 0; lane < lanes.length; lane++) {
+            CompletableFuture<Void> future = futures.get(lane);
+            if (future == null) {
+                continue;
+            }
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                int index = indexesByLane.get(lane).get(0);
+                if (failure == null || index < failure.getIndex()) {
+                    failure = new Failure(index, e.getCause() != null ? e.getCause() : e);
+                }
+            }
+        }
+        return Optional.ofNullable(failure);
+    }
+
+    int laneOf(Object key) {
+        return Math.floorMod(Objects.hashCode(key), lanes.length);
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    /**
+     * A failed lane: the index of its first item, below which every item has been handled, and the error.
+     */
+    public static final class Failure {
+
+        private final int index;
+
+        private final Throwable cause;
+
+        Failure(int index, Throwable cause) {
+            this.index = index;
+            this.cause = cause;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public Throwable getCause() {
+            return cause;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package morozov.vu.service.kafka;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import morozov.vu.config.KafkaProperties;
+import morozov.vu.management.KafkaMetersService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Backpressure of the ShopTwo listener container, driven by how fast its records are persisted.
+ * <p>
+ * The listener reports the records it receives and the time each chunk of them takes to persist. When a chunk is
+ * slower than {@code pauseLatency}, or, when {@code maxInFlight} is set, too many records are waiting in the
+ * listener, the container is paused: its consumers keep polling, so they stay in the group and no rebalance happens,
+ * but the polls return no records. The container is resumed once the pause has elapsed; each pause caused by a slow
+ * chunk doubles the next one, until a chunk is persisted within {@code resumeLatency}.
+ * <p>
+ * The size of the chunks persisted per transaction follows the same signal: halved on a slow chunk, grown back by a
+ * tenth of the batch size on a fast one, so that a slow database sees short transactions.
+ */
+@Service
+public class ListenerBackpressure {
+
+    private static final String LATENCY_CAUSE = "latency";
+    private static final String IN_FLIGHT_CAUSE = "in-flight";
+
+    private final Logger log = LoggerFactory.getLogger(ListenerBackpressure.class);
+
+    private final KafkaListenerEndpointRegistry registry;
+
+    private final KafkaMetersService kafkaMetersService;
+
+    private final String listenerId;
+
+    private final boolean enabled;
+
+    private final long pauseLatencyNanos;
+
+    private final long resumeLatencyNanos;
+
+    private final int maxInFlight;
+
+    private final long pauseMillis;
+
+    private final long maxPauseMillis;
+
+    private final int minChunkSize;
+
+    private final int maxChunkSize;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int chunkSize;
+
+    // Guarded by this
+    private boolean paused;
+    private long resumeAt;
+    private long nextPauseMillis;
+
+    public ListenerBackpressure(
+        KafkaListenerEndpointRegistry registry,
+        KafkaMetersService kafkaMetersService,
+        KafkaProperties kafkaProperties
+    ) {
+        this(registry, kafkaMetersService, kafkaProperties, KafkaProperties.Listener.ORDER_LISTENER_ID);
+    }
+
+    ListenerBackpressure(
+        KafkaListenerEndpointRegistry registry,
+        KafkaMetersService kafkaMetersService,
+        KafkaProperties kafkaProperties,
+        String listenerId
+    ) {
+        KafkaProperties.Backpressure backpressure = kafkaProperties.getBackpressure();
+        this.registry = registry;
+        this.kafkaMetersService = kafkaMetersService;
+        this.listenerId = listenerId;
+        this.enabled = backpressure.isEnabled();
+        this.pauseLatencyNanos = backpressure.getPauseLatency().toNanos();
+        this.resumeLatencyNanos = backpressure.getResumeLatency().toNanos();
+        this.maxInFlight = backpressure.getMaxInFlight();
+        this.pauseMillis = backpressure.getPauseDuration().toMillis();
+        this.maxPauseMillis = Math.max(pauseMillis, backpressure.getMaxPauseDuration().toMillis());
+        this.maxChunkSize = Math.max(1, kafkaProperties.getListenerBatchSize());
+        this.minChunkSize = Math.max(1, Math.min(backpressure.getMinChunkSize(), maxChunkSize));
+        this.chunkSize = maxChunkSize;
+        this.nextPauseMillis = pauseMillis;
+        KafkaProperties.Listener listener = kafkaProperties.getListener();
+        // Each consumer thread holds at most one batch at a time
+        long maxBatches = listener.isScaleToPartitions()
+            ? Math.max(listener.getConcurrency(), listener.getMaxConcurrency())
+            : listener.getConcurrency();
+        if (enabled && maxInFlight > 0 && maxInFlight >= maxBatches * maxChunkSize) {
+            log.warn(
+                "kafka.backpressure.max-in-flight {} is not below the {} records of {} consumer thread(s), it never pauses the listener",
+                maxInFlight,
+                maxBatches * maxChunkSize,
+                maxBatches
+            );
+        }
+    }
+
+    /**
+     * @return the number of records to persist per transaction.
+     */
+    public int chunkSize() {
+        return enabled ? chunkSize : Integer.MAX_VALUE;
+    }
+
+    /**
+     * The listener received a batch of records.
+     */
+    public void batchReceived(int records) {
+        int current = enabled ? inFlight.addAndGet(records) : 0;
+        if (maxInFlight > 0 && current > maxInFlight) {
+            pause(IN_FLIGHT_CAUSE, false);
+        }
+    }
+
+    /**
+     * The listener is done with a batch of records, persisted or not.
+     */
+    public void batchCompleted(int records) {
+        if (enabled) {
+            inFlight.addAndGet(-records);
+        }
+    }
+
+    /**
+     * A chunk of records took the given time to persist.
+     */
+    public void chunkPersisted(long nanos) {
+        if (!enabled) {
+            return;
+        }
+        if (nanos > pauseLatencyNanos) {
+            shrinkChunks();
+            pause(LATENCY_CAUSE, true);
+        } else if (nanos < resumeLatencyNanos) {
+            growChunks();
+            synchronized (this) {
+                nextPauseMillis = pauseMillis;
+            }
+        }
+    }
+
+    private synchronized void shrinkChunks() {
+        int shrunk = Math.max(minChunkSize, chunkSize / 2);
+        if (shrunk != chunkSize) {
+            log.debug("Persisting the records of the listener by {} instead of {}", shrunk, chunkSize);
+            chunkSize = shrunk;
+        }
+    }
+
+    private synchronized void growChunks() {
+        chunkSize = Math.min(maxChunkSize, chunkSize + Math.max(1, maxChunkSize / 10));
+    }
+
+    private synchronized void pause(String cause, boolean backOff) {
+        if (paused) {
+            return;
+        }
+        MessageListenerContainer container = registry.getListenerContainer(listenerId);
+        if (container == null) {
+            return;
+        }
+        long duration = nextPauseMillis;
+        if (backOff) {
+            nextPauseMillis = Math.min(maxPauseMillis, nextPauseMillis * 2);
+        }
+        log.info("Pausing the listener for {} ms ({}: {} records in flight)", duration, cause, inFlight.get());
+        container.pause();
+        paused = true;
+        resumeAt = System.currentTimeMillis() + duration;
+        kafkaMetersService.trackBackpressurePause(cause);
+    }
+
+    /**
+     * Resume the container once its pause has elapsed and the records waiting in the listener went down.
+     */
+    @Scheduled(fixedDelayString = "PT0.2S")
+    public synchronized void resumeWhenDue() {
+        if (!paused || System.currentTimeMillis() < resumeAt || (maxInFlight > 0 && inFlight.get() > maxInFlight / 2)) {
+            return;
+        }
+        MessageListenerContainer container = registry.getListenerContainer(listenerId);
+        if (container != null) {
+            log.info("Resuming the listener ({} records in flight)", inFlight.get());
+            container.resume();
+        }
+        paused = false;
+    }
+}
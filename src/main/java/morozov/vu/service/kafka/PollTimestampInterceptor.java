@@ -0,0 +1,51 @@
+package morozov.vu.service.kafka;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import org.apache.kafka.clients.consumer.ConsumerInterceptor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+
+/**
+ * {@link ConsumerInterceptor} stamping each polled record with the time of the poll, so that the listener can measure
+ * how long records wait between the poll and their processing.
+ * <p>
+ * Configured through {@code interceptor.classes}; the stamp is an 8-byte epoch-millisecond header.
+ */
+public class PollTimestampInterceptor implements ConsumerInterceptor<Object, Object> {
+
+    public static final String POLL_TIMESTAMP_HEADER = "poll-timestamp";
+
+    @Override
+    public ConsumerRecords<Object, Object> onConsume(ConsumerRecords<Object, Object> records) {
+        if (records.isEmpty()) {
+            return records;
+        }
+        byte[] now = ByteBuffer.allocate(Long.BYTES).putLong(System.currentTimeMillis()).array();
+        for (ConsumerRecord<Object, Object> record : records) {
+            record.headers().remove(POLL_TIMESTAMP_HEADER);
+            record.headers().add(POLL_TIMESTAMP_HEADER, now);
+        }
+        return records;
+    }
+
+    /**
+     * @return the time, in epoch milliseconds, of the poll which returned the record, or {@code -1} if unknown.
+     */
+    public static long pollTimestamp(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(POLL_TIMESTAMP_HEADER);
+        return header == null || header.value().length != Long.BYTES ? -1 : ByteBuffer.wrap(header.value()).getLong();
+    }
+
+    @Override
+    public void onCommit(Map<TopicPartition, OffsetAndMetadata> offsets) {}
+
+    @Override
+    public void close() {}
+
+    @Override
+    public void configure(Map<String, ?> configs) {}
+}
@@ -0,0 +1,219 @@
+package morozov.vu.service.kafka;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import morozov.vu.config.KafkaProperties;
+import morozov.vu.repository.ProcessedOffsetRepository;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps track of the Kafka records whose effects are already persisted, so that replayed records are skipped.
+ * <p>
+ * A record is marked as processed in the {@code processed_offset} table within the transaction holding its effects,
+ * which gives exactly-once effects without Kafka transactions. An in-memory {@link ConcurrentBloomFilter} of the
+ * processed records sits in front of the table: a record the filter has never seen is new, and only the few records
+ * it may have seen are looked up in the table. The filter is filled after each commit and warmed with the records
+ * processed by other instances when partitions are assigned.
+ * <p>
+ * So that it never saturates, the filter is made of two generations, each sized for half the expected records: the
+ * records are added to the current one and looked up in both. Once the current generation holds half the expected
+ * records, or is older than half the retention, it becomes the previous one and the oldest is dropped. The filter
+ * thus remembers at least the last half of the expected records; a record replayed from further back, beyond the
+ * records reloaded by {@link #warm}, is processed again.
+ */
+@Service
+public class ProcessedOffsetTracker {
+
+    private static final long MULTIPLIER = 0x9e3779b97f4a7c15L;
+
+    private final Logger log = LoggerFactory.getLogger(ProcessedOffsetTracker.class);
+
+    private final ProcessedOffsetRepository processedOffsetRepository;
+
+    private final KafkaProperties.Deduplication deduplication;
+
+    private final long generationCapacity;
+
+    private final long generationLifetimeMillis;
+
+    private volatile Generations processed;
+
+    private long currentInsertions;
+
+    public ProcessedOffsetTracker(ProcessedOffsetRepository processedOffsetRepository, KafkaProperties kafkaProperties) {
+        this.processedOffsetRepository = processedOffsetRepository;
+        this.deduplication = kafkaProperties.getDeduplication();
+        this.generationCapacity = Math.max(1, deduplication.getExpectedRecords() / 2);
+        this.generationLifetimeMillis = deduplication.getRetention().toMillis() / 2;
+        this.processed = new Generations(newGeneration(), newGeneration());
+    }
+
+    /**
+     * @return the records not processed yet, in their original order.
+     */
+    public <K, V> List<ConsumerRecord<K, V>> filterUnprocessed(List<ConsumerRecord<K, V>> records) {
+        if (!deduplication.isEnabled()) {
+            return records;
+        }
+        Map<TopicPartition, List<Long>> suspects = new HashMap<>();
+        for (ConsumerRecord<K, V> record : records) {
+            if (mightBeProcessed(hash(record.topic(), record.partition(), record.offset()))) {
+                suspects.computeIfAbsent(new TopicPartition(record.topic(), record.partition()), tp -> new ArrayList<>()).add(record.offset());
+            }
+        }
+        if (suspects.isEmpty()) {
+            return records;
+        }
+        Map<TopicPartition, Set<Long>> duplicates = new HashMap<>();
+        suspects.forEach((tp, offsets) -> duplicates.put(tp, processedOffsetRepository.findProcessed(tp.topic(), tp.partition(), offsets)));
+        List<ConsumerRecord<K, V>> unprocessed = new ArrayList<>(records.size());
+        for (ConsumerRecord<K, V> record : records) {
+            Set<Long> offsets = duplicates.get(new TopicPartition(record.topic(), record.partition()));
+            if (offsets == null || !offsets.contains(record.offset())) {
+                unprocessed.add(record);
+            }
+        }
+        if (unprocessed.size() < records.size()) {
+            log.info("Skipping {} records already processed", records.size() - unprocessed.size());
+        }
+        return unprocessed;
+    }
+
+    /**
+     * Record records as processed, within the current transaction, before their effects are written: they are added
+     * to the in-memory filter once it is committed.
+     * <p>
+     * The filter only learns the records processed by this instance, so another consumer may have processed some of
+     * them meanwhile, for instance around a rebalance; those are left out instead of failing the transaction on the
+     * primary key of the table.
+     *
+     * @return the records recorded by this call, in their original order, which are the ones to apply.
+     */
+    public <K, V> List<ConsumerRecord<K, V>> markProcessed(List<ConsumerRecord<K, V>> records) {
+        if (!deduplication.isEnabled() || records.isEmpty()) {
+            return records;
+        }
+        Map<TopicPartition, List<Long>> offsets = new HashMap<>();
+        for (ConsumerRecord<K, V> record : records) {
+            offsets.computeIfAbsent(new TopicPartition(record.topic(), record.partition()), tp -> new ArrayList<>()).add(record.offset());
+        }
+        Map<TopicPartition, Set<Long>> recorded = new HashMap<>();
+        offsets.forEach((tp, partitionOffsets) ->
+            recorded.put(tp, processedOffsetRepository.markProcessed(tp.topic(), tp.partition(), partitionOffsets))
+        );
+        List<ConsumerRecord<K, V>> marked = new ArrayList<>(records.size());
+        List<Long> duplicates = new ArrayList<>();
+        for (ConsumerRecord<K, V> record : records) {
+            long hash = hash(record.topic(), record.partition(), record.offset());
+            if (recorded.get(new TopicPartition(record.topic(), record.partition())).contains(record.offset())) {
+                marked.add(record);
+            } else {
+                duplicates.add(hash);
+            }
+        }
+        if (!duplicates.isEmpty()) {
+            log.info("Skipping {} records processed concurrently by another consumer", duplicates.size());
+            remember(duplicates.stream().mapToLong(Long::longValue).toArray());
+        }
+        long[] hashes = marked.stream().mapToLong(record -> hash(record.topic(), record.partition(), record.offset())).toArray();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        remember(hashes);
+                    }
+                }
+            );
+        } else {
+            remember(hashes);
+        }
+        return marked;
+    }
+
+    /**
+     * Load in the in-memory filter the records processed from the committed offsets of newly assigned partitions,
+     * which are the only ones that can be replayed.
+     */
+    public void warm(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (!deduplication.isEnabled() || partitions.isEmpty()) {
+            return;
+        }
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+        for (TopicPartition tp : partitions) {
+            OffsetAndMetadata offset = committed.get(tp);
+            List<Long> offsets = processedOffsetRepository.findProcessedFrom(tp.topic(), tp.partition(), offset != null ? offset.offset() : 0);
+            remember(offsets.stream().mapToLong(processedOffset -> hash(tp.topic(), tp.partition(), processedOffset)).toArray());
+            log.debug("Warmed the processed records filter with {} records of {}", offsets.size(), tp);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "PT1H", initialDelayString = "PT5M")
+    public void purge() {
+        if (!deduplication.isEnabled()) {
+            return;
+        }
+        int purged = processedOffsetRepository.deleteProcessedBefore(Instant.now().minus(deduplication.getRetention()));
+        log.debug("Purged {} processed records older than {}", purged, deduplication.getRetention());
+    }
+
+    boolean mightBeProcessed(long hash) {
+        Generations generations = processed;
+        return generations.current.mightContain(hash) || generations.previous.mightContain(hash);
+    }
+
+    /**
+     * Add hashes to the current generation, rotating the generations when it is full or too old. Only the readers
+     * run concurrently with it.
+     */
+    synchronized void remember(long[] hashes) {
+        long now = System.currentTimeMillis();
+        for (long hash : hashes) {
+            if (currentInsertions >= generationCapacity || now - processed.createdAt >= generationLifetimeMillis) {
+                processed = new Generations(newGeneration(), processed.current);
+                currentInsertions = 0;
+                log.debug("Rotated the generations of the processed records filter");
+            }
+            processed.current.put(hash);
+            currentInsertions++;
+        }
+    }
+
+    private ConcurrentBloomFilter newGeneration() {
+        // Looked up in two generations, each answers with half the false positive rate
+        return new ConcurrentBloomFilter(generationCapacity, deduplication.getFalsePositiveRate() / 2);
+    }
+
+    static long hash(String topic, int partition, long offset) {
+        return ((topic.hashCode() * MULTIPLIER) + partition) * MULTIPLIER + offset;
+    }
+
+    private static final class Generations {
+
+        private final ConcurrentBloomFilter current;
+
+        private final ConcurrentBloomFilter previous;
+
+        private final long createdAt = System.currentTimeMillis();
+
+        private Generations(ConcurrentBloomFilter current, ConcurrentBloomFilter previous) {
+            this.current = current;
+            this.previous = previous;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package morozov.vu.service.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.PreDestroy;
+import morozov.vu.config.KafkaProperties;
+import morozov.vu.domain.ShopTwo;
+import morozov.vu.management.KafkaMetersService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Sends the ShopTwo records the listener could not persist to the next retry topic, or to the dead-letter topic once
+ * all the retry stages failed.
+ * <p>
+ * The stage of a record and the time from which it may be retried travel in its headers, along with the message of
+ * the last failure and the position of the record in the main topic; the other headers, key and value are kept.
+ */
+@Service
+public class RetryTopicPublisher {
+
+    public static final String RETRY_TOPIC_SUFFIX = "-retry-";
+
+    public static final String DEAD_LETTER_TOPIC_SUFFIX = "-dlt";
+
+    public static final String STAGE_HEADER = "retry-stage";
+
+    public static final String DUE_AT_HEADER = "retry-due-at";
+
+    public static final String EXCEPTION_HEADER = "retry-exception";
+
+    public static final String ORIGIN_TOPIC_HEADER = "retry-origin-topic";
+
+    public static final String ORIGIN_PARTITION_HEADER = "retry-origin-partition";
+
+    public static final String ORIGIN_OFFSET_HEADER = "retry-origin-offset";
+
+    public static final String DEAD_LETTER_STAGE = "dlt";
+
+    private static final long SEND_TIMEOUT_SECONDS = 30;
+
+    private final Logger log = LoggerFactory.getLogger(RetryTopicPublisher.class);
+
+    private final KafkaProperties.Retry retry;
+
+    private final String topic;
+
+    private final KafkaMetersService kafkaMetersService;
+
+    private final KafkaProducer<Long, ShopTwo> producer;
+
+    public RetryTopicPublisher(KafkaProperties kafkaProperties, KafkaMetersService kafkaMetersService) {
+        this.retry = kafkaProperties.getRetry();
+        this.topic = kafkaProperties.getListener().getTopic();
+        this.kafkaMetersService = kafkaMetersService;
+        Map<String, Object> producerProps = kafkaProperties.getProducerProps();
+        KafkaProperties.WireFormat wireFormat = kafkaProperties.getWireFormat();
+        this.producer = new KafkaProducer<>(
+            producerProps,
+            new LongSerializer(),
+            new ShopTwoSerializer(wireFormat.getDefaultFormat(), wireFormat.getTopics())
+        );
+    }
+
+    /**
+     * Send a failed record to its next stage and wait for the broker to acknowledge it, so that its offset can then
+     * be committed.
+     *
+     * @param record the record which could not be persisted.
+     * @param cause the failure.
+     * @throws KafkaException if the record could not be sent.
+     */
+    public void forward(ConsumerRecord<?, ?> record, Exception cause) {
+        int stage = stageOf(record) + 1;
+        boolean deadLetter = stage >= retry.getAttempts();
+        String target = deadLetter ? deadLetterTopic() : retryTopic(stage);
+
+        Headers headers = new RecordHeaders(record.headers().toArray());
+        headers.remove(STAGE_HEADER);
+        headers.remove(DUE_AT_HEADER);
+        headers.remove(EXCEPTION_HEADER);
+        headers.remove(PollTimestampInterceptor.POLL_TIMESTAMP_HEADER);
+        if (headers.lastHeader(ORIGIN_OFFSET_HEADER) == null) {
+            // Forwarded from the main topic: later stages keep this position
+            headers.add(ORIGIN_TOPIC_HEADER, record.topic().getBytes(StandardCharsets.UTF_8));
+            headers.add(ORIGIN_PARTITION_HEADER, Integer.toString(record.partition()).getBytes(StandardCharsets.UTF_8));
+            headers.add(ORIGIN_OFFSET_HEADER, Long.toString(record.offset()).getBytes(StandardCharsets.UTF_8));
+        }
+        headers.add(STAGE_HEADER, Integer.toString(stage).getBytes(StandardCharsets.UTF_8));
+        if (!deadLetter) {
+            long dueAt = System.currentTimeMillis() + delayOf(stage).toMillis();
+            headers.add(DUE_AT_HEADER, Long.toString(dueAt).getBytes(StandardCharsets.UTF_8));
+        }
+        headers.add(EXCEPTION_HEADER, String.valueOf(rootCause(cause).getMessage()).getBytes(StandardCharsets.UTF_8));
+
+        ProducerRecord<Long, ShopTwo> forwarded = new ProducerRecord<>(
+            target,
+            null,
+            (Long) record.key(),
+            (ShopTwo) record.value(),
+            headers
+        );
+        try {
+            producer.send(forwarded).get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted while forwarding a record to " + target, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new KafkaException("Could not forward a record to " + target, e);
+        }
+        kafkaMetersService.trackRetryForwarded(deadLetter ? DEAD_LETTER_STAGE : stageName(stage));
+        log.warn(
+            "Record at offset {} of {}-{} failed ({}), sent to {}",
+            record.offset(),
+            record.topic(),
+            record.partition(),
+            cause.getMessage(),
+            target
+        );
+    }
+
+    /**
+     * @return the delay a record waits in the given retry stage.
+     */
+    public Duration delayOf(int stage) {
+        double delay = retry.getInitialDelay().toMillis() * Math.pow(retry.getMultiplier(), stage);
+        return Duration.ofMillis((long) Math.min(delay, retry.getMaxDelay().toMillis()));
+    }
+
+    public String retryTopic(int stage) {
+        return topic + RETRY_TOPIC_SUFFIX + stage;
+    }
+
+    public String deadLetterTopic() {
+        return topic + DEAD_LETTER_TOPIC_SUFFIX;
+    }
+
+    public static String stageName(int stage) {
+        return "retry-" + stage;
+    }
+
+    /**
+     * @return the retry stage of the record, {@code -1} for a record of the main topic.
+     */
+    public static int stageOf(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(STAGE_HEADER);
+        return header == null ? -1 : Integer.parseInt(new String(header.value(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the time, in epoch milliseconds, from which the record may be retried.
+     */
+    public static long dueAt(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(DUE_AT_HEADER);
+        return header == null ? record.timestamp() : Long.parseLong(new String(header.value(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the topic the record was first received from.
+     */
+    public static String originTopic(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(ORIGIN_TOPIC_HEADER);
+        return header == null ? record.topic() : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the partition the record was first received from.
+     */
+    public static int originPartition(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(ORIGIN_PARTITION_HEADER);
+        return header == null ? record.partition() : Integer.parseInt(new String(header.value(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the offset of the record in the partition it was first received from.
+     */
+    public static long originOffset(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(ORIGIN_OFFSET_HEADER);
+        return header == null ? record.offset() : Long.parseLong(new String(header.value(), StandardCharsets.UTF_8));
+    }
+
+    private static Throwable rootCause(Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        producer.close(Duration.ofSeconds(5));
+    }
+}
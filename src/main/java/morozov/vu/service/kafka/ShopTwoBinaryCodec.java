@@ -0,0 +1,178 @@
+package morozov.vu.service.kafka;
+
+import java.nio.charset.StandardCharsets;
+import morozov.vu.domain.ShopTwo;
+import org.apache.kafka.common.errors.SerializationException;
+
+/**
+ * Compact binary format of the {@link ShopTwo} values.
+ * <p>
+ * A value starts with {@link #MAGIC}, a byte no JSON document starts with, then the {@link #VERSION} of the format and
+ * a byte flagging the fields present. The present fields follow in declaration order: the id as a zig-zag varint,
+ * the texts as a varint length followed by their UTF-8 bytes. Field names are never written.
+ */
+public final class ShopTwoBinaryCodec {
+
+    public static final byte MAGIC = 0;
+
+    public static final byte VERSION = 1;
+
+    private static final int ID = 1;
+    private static final int SHOP_NAME = 1 << 1;
+    private static final int OWNER = 1 << 2;
+    private static final int CATEGORY = 1 << 3;
+    private static final int EMAIL = 1 << 4;
+    private static final int KNOWN_FIELDS = ID | SHOP_NAME | OWNER | CATEGORY | EMAIL;
+
+    private static final int HEADER_SIZE = 3;
+
+    private ShopTwoBinaryCodec() {}
+
+    /**
+     * @return whether the value is in the binary format rather than JSON.
+     */
+    public static boolean isBinary(byte[] data) {
+        return data.length > 0 && data[0] == MAGIC;
+    }
+
+    public static byte[] encode(ShopTwo shopTwo) {
+        byte[] shopName = utf8(shopTwo.getShopName());
+        byte[] owner = utf8(shopTwo.getOwner());
+        byte[] category = utf8(shopTwo.getCategory());
+        byte[] email = utf8(shopTwo.getEmail());
+        Long id = shopTwo.getId();
+
+        int flags = 0;
+        int size = HEADER_SIZE;
+        if (id != null) {
+            flags |= ID;
+            size += varLongSize(zigZag(id));
+        }
+        flags |= textFlag(shopName, SHOP_NAME) | textFlag(owner, OWNER) | textFlag(category, CATEGORY) | textFlag(email, EMAIL);
+        size += textSize(shopName) + textSize(owner) + textSize(category) + textSize(email);
+
+        byte[] data = new byte[size];
+        data[0] = MAGIC;
+        data[1] = VERSION;
+        data[2] = (byte) flags;
+        int position = HEADER_SIZE;
+        if (id != null) {
+            position = writeVarLong(data, position, zigZag(id));
+        }
+        position = writeText(data, position, shopName);
+        position = writeText(data, position, owner);
+        position = writeText(data, position, category);
+        writeText(data, position, email);
+        return data;
+    }
+
+    /**
+     * @throws SerializationException if the value is not in a known version of the format, or is truncated.
+     */
+    public static ShopTwo decode(byte[] data) {
+        if (data.length < HEADER_SIZE || data[0] != MAGIC) {
+            throw new SerializationException("Not a binary ShopTwo value");
+        }
+        if (data[1] != VERSION) {
+            throw new SerializationException("Unsupported binary ShopTwo version " + data[1]);
+        }
+        int flags = data[2] & 0xFF;
+        if ((flags & ~KNOWN_FIELDS) != 0) {
+            throw new SerializationException("Unknown binary ShopTwo fields " + Integer.toBinaryString(flags));
+        }
+        Reader reader = new Reader(data, HEADER_SIZE);
+        ShopTwo shopTwo = new ShopTwo();
+        if ((flags & ID) != 0) {
+            long zigZag = reader.varLong();
+            shopTwo.setId((zigZag >>> 1) ^ -(zigZag & 1));
+        }
+        shopTwo.setShopName((flags & SHOP_NAME) != 0 ? reader.text() : null);
+        shopTwo.setOwner((flags & OWNER) != 0 ? reader.text() : null);
+        shopTwo.setCategory((flags & CATEGORY) != 0 ? reader.text() : null);
+        shopTwo.setEmail((flags & EMAIL) != 0 ? reader.text() : null);
+        if (reader.position != data.length) {
+            throw new SerializationException("Trailing bytes after the binary ShopTwo value");
+        }
+        return shopTwo;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int textFlag(byte[] text, int flag) {
+        return text == null ? 0 : flag;
+    }
+
+    private static int textSize(byte[] text) {
+        return text == null ? 0 : varLongSize(text.length) + text.length;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int varLongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int writeVarLong(byte[] data, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            data[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[position++] = (byte) value;
+        return position;
+    }
+
+    private static int writeText(byte[] data, int position, byte[] text) {
+        if (text == null) {
+            return position;
+        }
+        position = writeVarLong(data, position, text.length);
+        System.arraycopy(text, 0, data, position, text.length);
+        return position + text.length;
+    }
+
+    private static final class Reader {
+
+        private final byte[] data;
+
+        private int position;
+
+        private Reader(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        private long varLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= data.length) {
+                    throw new SerializationException("Truncated binary ShopTwo value");
+                }
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("Malformed varint in binary ShopTwo value");
+        }
+
+        private String text() {
+            long length = varLong();
+            if (length > data.length - position) {
+                throw new SerializationException("Truncated binary ShopTwo value");
+            }
+            String text = new String(data, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return text;
+        }
+    }
+}
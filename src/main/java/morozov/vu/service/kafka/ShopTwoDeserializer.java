@@ -0,0 +1,136 @@
+package morozov.vu.service.kafka;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.Map;
+import morozov.vu.domain.ShopTwo;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Kafka {@link Deserializer} reading {@link ShopTwo} JSON values straight from the record bytes.
+ * <p>
+ * Values starting with {@link ShopTwoBinaryCodec#MAGIC} are in the binary format and decoded by
+ * {@link ShopTwoBinaryCodec}, so that topics can move from one format to the other while consumers read both.
+ * <p>
+ * The payload is walked token by token with a Jackson streaming parser, so neither an intermediate {@code String}
+ * nor a tree model is built. All parsers come from a single shared {@link JsonFactory}, which hands each thread its
+ * own recycled input buffers and reuses the canonicalized field names: per record, only the parser shell and the
+ * field values are allocated.
+ * <p>
+ * In error-tolerant mode (see {@link #ERROR_TOLERANT_CONFIG}), a payload which cannot be read is passed to the
+ * {@link DeserializationFailureHandler} and {@code null} is returned, instead of an exception stopping the container.
+ * <p>
+ * This class is stateless and can be shared between consumers.
+ */
+public class ShopTwoDeserializer implements Deserializer<ShopTwo> {
+
+    /**
+     * Consumer property enabling the error-tolerant mode, {@code false} by default.
+     */
+    public static final String ERROR_TOLERANT_CONFIG = "shop-two.deserializer.error-tolerant";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Logger log = LoggerFactory.getLogger(ShopTwoDeserializer.class);
+
+    private final DeserializationFailureHandler failureHandler;
+
+    private volatile boolean errorTolerant;
+
+    public ShopTwoDeserializer() {
+        this(null);
+    }
+
+    public ShopTwoDeserializer(DeserializationFailureHandler failureHandler) {
+        this.failureHandler = failureHandler;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object value = configs.get(ERROR_TOLERANT_CONFIG);
+        if (value != null) {
+            this.errorTolerant = Boolean.parseBoolean(value.toString());
+        }
+    }
+
+    public void setErrorTolerant(boolean errorTolerant) {
+        this.errorTolerant = errorTolerant;
+    }
+
+    @Override
+    public ShopTwo deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public ShopTwo deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return read(data);
+        } catch (IOException | RuntimeException e) {
+            if (!errorTolerant) {
+                throw new SerializationException("Cannot deserialize ShopTwo from topic " + topic, e);
+            }
+            log.warn("Skipping undeserializable ShopTwo payload from topic {}: {}", topic, e.getMessage());
+            if (failureHandler != null) {
+                failureHandler.handle(topic, headers, data, e);
+            }
+            return null;
+        }
+    }
+
+    private ShopTwo read(byte[] data) throws IOException {
+        if (ShopTwoBinaryCodec.isBinary(data)) {
+            return ShopTwoBinaryCodec.decode(data);
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(data)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a JSON object");
+            }
+            ShopTwo shopTwo = new ShopTwo();
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "id":
+                        shopTwo.setId(token == JsonToken.VALUE_NULL ? null : parser.getValueAsLong());
+                        break;
+                    case "shopName":
+                        shopTwo.setShopName(readText(parser, token));
+                        break;
+                    case "owner":
+                        shopTwo.setOwner(readText(parser, token));
+                        break;
+                    case "category":
+                        shopTwo.setCategory(readText(parser, token));
+                        break;
+                    case "email":
+                        shopTwo.setEmail(readText(parser, token));
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                throw new JsonParseException(parser, "Unexpected end of the ShopTwo object");
+            }
+            return shopTwo;
+        }
+    }
+
+    private static String readText(JsonParser parser, JsonToken token) throws IOException {
+        if (token.isStructStart()) {
+            throw new JsonParseException(parser, "Expected a scalar value for " + parser.currentName());
+        }
+        return parser.getValueAsString();
+    }
+}
@@ -0,0 +1,96 @@
+package morozov.vu.service.kafka;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import morozov.vu.domain.ShopTwo;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka {@link Serializer} writing {@link ShopTwo} values as the JSON or the binary format read by
+ * {@link ShopTwoDeserializer}, chosen per topic.
+ * <p>
+ * The format of a topic is the one given for it, otherwise the default format, {@link ShopTwoWireFormat#JSON} unless
+ * configured. When the serializer is configured by the producer, {@link #FORMAT_CONFIG} sets the default format and
+ * {@code <FORMAT_CONFIG>.<topic>} the format of a topic.
+ * <p>
+ * This class is stateless and can be shared between producers.
+ */
+public class ShopTwoSerializer implements Serializer<ShopTwo> {
+
+    /**
+     * Producer property setting the default format.
+     */
+    public static final String FORMAT_CONFIG = "shop-two.serializer.format";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private volatile ShopTwoWireFormat defaultFormat;
+
+    private volatile Map<String, ShopTwoWireFormat> topicFormats;
+
+    public ShopTwoSerializer() {
+        this(ShopTwoWireFormat.JSON, Map.of());
+    }
+
+    public ShopTwoSerializer(ShopTwoWireFormat defaultFormat, Map<String, ShopTwoWireFormat> topicFormats) {
+        this.defaultFormat = defaultFormat;
+        this.topicFormats = Map.copyOf(topicFormats);
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Map<String, ShopTwoWireFormat> formats = new HashMap<>(topicFormats);
+        String topicPrefix = FORMAT_CONFIG + ".";
+        configs.forEach((key, value) -> {
+            if (key.equals(FORMAT_CONFIG)) {
+                defaultFormat = ShopTwoWireFormat.valueOf(value.toString().toUpperCase());
+            } else if (key.startsWith(topicPrefix)) {
+                formats.put(key.substring(topicPrefix.length()), ShopTwoWireFormat.valueOf(value.toString().toUpperCase()));
+            }
+        });
+        topicFormats = Map.copyOf(formats);
+    }
+
+    /**
+     * @return the format of the values written to the topic.
+     */
+    public ShopTwoWireFormat formatOf(String topic) {
+        return topicFormats.getOrDefault(topic, defaultFormat);
+    }
+
+    @Override
+    public byte[] serialize(String topic, ShopTwo shopTwo) {
+        if (shopTwo == null) {
+            return null;
+        }
+        if (formatOf(topic) == ShopTwoWireFormat.BINARY) {
+            return ShopTwoBinaryCodec.encode(shopTwo);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            if (shopTwo.getId() != null) {
+                generator.writeNumberField("id", shopTwo.getId());
+            }
+            writeText(generator, "shopName", shopTwo.getShopName());
+            writeText(generator, "owner", shopTwo.getOwner());
+            writeText(generator, "category", shopTwo.getCategory());
+            writeText(generator, "email", shopTwo.getEmail());
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new SerializationException("Cannot serialize ShopTwo for topic " + topic, e);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeText(JsonGenerator generator, String field, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(field, value);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package morozov.vu.service.kafka;
+
+/**
+ * Formats of the {@link morozov.vu.domain.ShopTwo} values of the Kafka records.
+ * <p>
+ * {@link ShopTwoDeserializer} reads both, telling them apart by the first byte of the value.
+ */
+public enum ShopTwoWireFormat {
+    /**
+     * A JSON object, as written by the other services.
+     */
+    JSON,
+    /**
+     * The compact format of {@link ShopTwoBinaryCodec}.
+     */
+    BINARY
+}
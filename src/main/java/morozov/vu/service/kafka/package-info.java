@@ -0,0 +1,4 @@
+/**
+ * Kafka plumbing shared by the listeners and the REST endpoints: serialization and record processing.
+ */
+package morozov.vu.service.kafka;
@@ -1,16 +1,14 @@
 package morozov.vu.web.rest;
 
-import java.time.Duration;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import java.time.Instant;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 import morozov.vu.config.KafkaProperties;
-import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.apache.kafka.clients.consumer.ConsumerRecords;
-import org.apache.kafka.clients.consumer.KafkaConsumer;
+import morozov.vu.service.kafka.KafkaSseBroker;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
@@ -25,67 +23,132 @@ public class ConsumerKafkaResource {
 
     private final Logger log = LoggerFactory.getLogger(ConsumerKafkaResource.class);
 
-    private final KafkaProperties kafkaProperties;
+    private final KafkaSseBroker kafkaSseBroker;
     private KafkaProducer<String, String> producer;
-    private ExecutorService sseExecutorService = Executors.newCachedThreadPool();
 
-    public ConsumerKafkaResource(KafkaProperties kafkaProperties) {
-        this.kafkaProperties = kafkaProperties;
+    public ConsumerKafkaResource(KafkaProperties kafkaProperties, KafkaSseBroker kafkaSseBroker) {
+        this.kafkaSseBroker = kafkaSseBroker;
         this.producer = new KafkaProducer<>(kafkaProperties.getProducerProps());
     }
 
+    /**
+     * {@code POST  /publish/:topic} : send a message to a topic.
+     * <p>
+     * The request thread is released right away: the response is written from the producer callback, once the broker
+     * has acknowledged the message.
+     *
+     * @param topic the topic to send the message to.
+     * @param message the message.
+     * @param key the key of the message, if any.
+     * @return the metadata of the sent message.
+     */
     @PostMapping("/publish/{topic}")
-    public PublishResult publish(@PathVariable String topic, @RequestParam String message, @RequestParam(required = false) String key)
-        throws ExecutionException, InterruptedException {
+    public CompletableFuture<PublishResult> publish(
+        @PathVariable String topic,
+        @RequestParam String message,
+        @RequestParam(required = false) String key
+    ) {
         log.debug("REST request to send to Kafka topic {} with key {} the message : {}", topic, key, message);
-        RecordMetadata metadata = producer.send(new ProducerRecord<>(topic, key, message)).get();
-        return new PublishResult(metadata.topic(), metadata.partition(), metadata.offset(), Instant.ofEpochMilli(metadata.timestamp()));
+        return send(new ProducerRecord<>(topic, key, message));
     }
 
-    @GetMapping("/consume")
-    public SseEmitter consume(@RequestParam("topic") List<String> topics, @RequestParam Map<String, String> consumerParams) {
-        log.debug("REST request to consume records from Kafka topics {}", topics);
-        Map<String, Object> consumerProps = kafkaProperties.getConsumerProps();
-        consumerProps.putAll(consumerParams);
-        consumerProps.remove("topic");
-
-        SseEmitter emitter = new SseEmitter(0L);
-        sseExecutorService.execute(() -> {
-            KafkaConsumer<String, String> consumer = new KafkaConsumer<>(consumerProps);
-            emitter.onCompletion(consumer::close);
-            consumer.subscribe(topics);
-            boolean exitLoop = false;
-            while (!exitLoop) {
-                try {
-                    ConsumerRecords<String, String> records = consumer.poll(Duration.ofSeconds(5));
-                    for (ConsumerRecord<String, String> record : records) {
-                        emitter.send(record.value());
+    /**
+     * {@code POST  /publish/:topic/bulk} : send many messages to a topic in one request.
+     * <p>
+     * The messages are handed to the producer together, so that they share its batches, and the response lists the
+     * outcome of each message in the order of the request.
+     *
+     * @param topic the topic to send the messages to.
+     * @param messages the messages, with their optional key.
+     * @return the metadata, or the error, of each message.
+     */
+    @PostMapping("/publish/{topic}/bulk")
+    public CompletableFuture<List<PublishResult>> publishBulk(@PathVariable String topic, @RequestBody List<PublishRequest> messages) {
+        log.debug("REST request to send {} messages to Kafka topic {}", messages.size(), topic);
+        List<CompletableFuture<PublishResult>> results = messages
+            .stream()
+            .map(message ->
+                send(new ProducerRecord<>(topic, message.key, message.message)).exceptionally(e -> PublishResult.failed(topic, e))
+            )
+            .collect(Collectors.toList());
+        return CompletableFuture
+            .allOf(results.toArray(new CompletableFuture[0]))
+            .thenApply(done -> results.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+
+    private CompletableFuture<PublishResult> send(ProducerRecord<String, String> record) {
+        CompletableFuture<PublishResult> result = new CompletableFuture<>();
+        try {
+            producer.send(
+                record,
+                (metadata, exception) -> {
+                    if (exception != null) {
+                        result.completeExceptionally(exception);
+                    } else {
+                        result.complete(PublishResult.of(metadata));
                     }
-                    emitter.send(SseEmitter.event().comment(""));
-                } catch (Exception ex) {
-                    log.trace("Complete with error {}", ex.getMessage(), ex);
-                    emitter.completeWithError(ex);
-                    exitLoop = true;
                 }
-            }
-            consumer.close();
-            emitter.complete();
-        });
-        return emitter;
+            );
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * {@code GET  /consume} : stream the records of the given topics as Server-Sent Events.
+     * <p>
+     * All the clients of a topic share one consumer, configured by the {@code kafka.consumer} properties.
+     *
+     * @param topics the topics to stream.
+     * @return the emitter of the stream.
+     */
+    @GetMapping("/consume")
+    public SseEmitter consume(@RequestParam("topic") List<String> topics) {
+        log.debug("REST request to consume records from Kafka topics {}", topics);
+        return kafkaSseBroker.subscribe(topics);
     }
 
+    public static class PublishRequest {
+
+        public String key;
+        public String message;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private static class PublishResult {
 
         public final String topic;
-        public final int partition;
-        public final long offset;
+        public final Integer partition;
+        public final Long offset;
         public final Instant timestamp;
+        public final String error;
 
-        private PublishResult(String topic, int partition, long offset, Instant timestamp) {
+        private PublishResult(String topic, Integer partition, Long offset, Instant timestamp, String error) {
             this.topic = topic;
             this.partition = partition;
             this.offset = offset;
             this.timestamp = timestamp;
+            this.error = error;
+        }
+
+        private static PublishResult of(RecordMetadata metadata) {
+            return new PublishResult(
+                metadata.topic(),
+                metadata.partition(),
+                metadata.offset(),
+                Instant.ofEpochMilli(metadata.timestamp()),
+                null
+            );
+        }
+
+        private static PublishResult failed(String topic, Throwable e) {
+            // Only the wrappers of the futures are unwrapped: the producer's exception is the error itself
+            Throwable error = e;
+            while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+                error = error.getCause();
+            }
+            return new PublishResult(topic, null, null, null, error.getMessage() != null ? error.getMessage() : error.toString());
         }
     }
 }
@@ -1,20 +1,45 @@
 package morozov.vu.web.rest;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import morozov.vu.domain.ShopTwo;
 import morozov.vu.repository.ShopTwoRepository;
+import morozov.vu.service.ShopTwoBulkService;
+import morozov.vu.service.ShopTwoQueryService;
+import morozov.vu.service.criteria.ShopTwoCriteria;
+import morozov.vu.service.dto.BulkItemResult;
+import morozov.vu.service.dto.ImportResult;
+import morozov.vu.service.dto.ShopTwoDTO;
 import morozov.vu.web.rest.errors.BadRequestAlertException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springdoc.api.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
+import tech.jhipster.web.util.PaginationUtil;
 import tech.jhipster.web.util.ResponseUtil;
 
 /**
@@ -29,13 +54,29 @@ public class ShopTwoResource {
 
     private static final String ENTITY_NAME = "consumerShopTwo";
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
     private final ShopTwoRepository shopTwoRepository;
 
-    public ShopTwoResource(ShopTwoRepository shopTwoRepository) {
+    private final ShopTwoBulkService shopTwoBulkService;
+
+    private final ShopTwoQueryService shopTwoQueryService;
+
+    private final ObjectMapper objectMapper;
+
+    public ShopTwoResource(
+        ShopTwoRepository shopTwoRepository,
+        ShopTwoBulkService shopTwoBulkService,
+        ShopTwoQueryService shopTwoQueryService,
+        ObjectMapper objectMapper
+    ) {
         this.shopTwoRepository = shopTwoRepository;
+        this.shopTwoBulkService = shopTwoBulkService;
+        this.shopTwoQueryService = shopTwoQueryService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -58,13 +99,93 @@ public class ShopTwoResource {
             .body(result);
     }
 
+    /**
+     * {@code POST  /shop-twos/bulk} : Create many new shopTwos.
+     * <p>
+     * The body is either a JSON array or a stream of newline-delimited JSON objects. It is read and persisted in chunks,
+     * each chunk committed on its own.
+     *
+     * @param body the shopTwos to create.
+     * @return the result of each shopTwo, in the order of the body.
+     * @throws IOException if the body cannot be read.
+     */
+    @PostMapping(value = "/shop-twos/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BulkItemResult> createShopTwos(InputStream body) throws IOException {
+        log.debug("REST request to create ShopTwos in bulk");
+        try (MappingIterator<ShopTwo> shopTwos = objectMapper.readerFor(ShopTwo.class).readValues(body)) {
+            return shopTwoBulkService.createAll(shopTwos);
+        }
+    }
+
+    /**
+     * {@code POST  /admin/shop-twos/import} : Load many new shopTwos, for backfills.
+     * <p>
+     * The body is either a JSON array or a stream of newline-delimited JSON objects. The shopTwos are streamed to the
+     * database in large chunks, bypassing Hibernate, and get new ids whatever the ids of the body.
+     *
+     * @param body the shopTwos to import.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the number of imported shopTwos, or with
+     * status {@code 500 (Internal Server Error)} if the import stopped before the end of the body.
+     * @throws IOException if the body cannot be read.
+     */
+    @PostMapping(value = "/admin/shop-twos/import", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<ImportResult> importShopTwos(InputStream body) throws IOException {
+        log.debug("REST request to import ShopTwos");
+        try (MappingIterator<ShopTwo> shopTwos = objectMapper.readerFor(ShopTwo.class).readValues(body)) {
+            ImportResult result = shopTwoBulkService.importAll(shopTwos);
+            return ResponseEntity.status(result.getError() == null ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR).body(result);
+        }
+    }
+
+    /**
+     * {@code PUT  /shop-twos/bulk} : Updates many existing shopTwos.
+     * <p>
+     * The body is either a JSON array or a stream of newline-delimited JSON objects. It is read and persisted in chunks,
+     * each chunk committed on its own.
+     *
+     * @param body the shopTwos to update.
+     * @return the result of each shopTwo, in the order of the body.
+     * @throws IOException if the body cannot be read.
+     */
+    @PutMapping(value = "/shop-twos/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BulkItemResult> updateShopTwos(InputStream body) throws IOException {
+        log.debug("REST request to update ShopTwos in bulk");
+        try (MappingIterator<ShopTwo> shopTwos = objectMapper.readerFor(ShopTwo.class).readValues(body)) {
+            return shopTwoBulkService.updateAll(shopTwos);
+        }
+    }
+
+    /**
+     * {@code DELETE  /shop-twos/bulk} : delete many shopTwos.
+     * <p>
+     * The body is either a JSON array of ids or a stream of newline-delimited ids.
+     *
+     * @param body the ids of the shopTwos to delete.
+     * @return the result of each id, in the order of the body.
+     * @throws IOException if the body cannot be read.
+     */
+    @DeleteMapping(value = "/shop-twos/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BulkItemResult> deleteShopTwos(InputStream body) throws IOException {
+        log.debug("REST request to delete ShopTwos in bulk");
+        try (MappingIterator<Long> ids = objectMapper.readerFor(Long.class).readValues(body)) {
+            return shopTwoBulkService.deleteAll(ids);
+        }
+    }
+
     /**
      * {@code PUT  /shop-twos/:id} : Updates an existing shopTwo.
+     * <p>
+     * The shopTwo is updated with a single {@code UPDATE} statement, without being read first.
      *
      * @param id the id of the shopTwo to save.
      * @param shopTwo the shopTwo to update.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated shopTwo,
      * or with status {@code 400 (Bad Request)} if the shopTwo is not valid,
+     * or with status {@code 404 (Not Found)} if the shopTwo is not found,
      * or with status {@code 500 (Internal Server Error)} if the shopTwo couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
@@ -79,19 +200,24 @@ public class ShopTwoResource {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
 
-        if (!shopTwoRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
-        }
-
-        ShopTwo result = shopTwoRepository.save(shopTwo);
-        return ResponseEntity
-            .ok()
-            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, shopTwo.getId().toString()))
-            .body(result);
+        int updated = shopTwoRepository.updateById(
+            shopTwo.getId(),
+            shopTwo.getShopName(),
+            shopTwo.getOwner(),
+            shopTwo.getCategory(),
+            shopTwo.getEmail()
+        );
+        return ResponseUtil.wrapOrNotFound(
+            Optional.of(shopTwo).filter(result -> updated > 0),
+            HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, shopTwo.getId().toString())
+        );
     }
 
     /**
      * {@code PATCH  /shop-twos/:id} : Partial updates given fields of an existing shopTwo, field will ignore if it is null
+     * <p>
+     * The shopTwo is updated with a single {@code UPDATE} statement listing only the given fields, without being read
+     * first; it is read once updated for the response body.
      *
      * @param id the id of the shopTwo to save.
      * @param shopTwo the shopTwo to update.
@@ -114,45 +240,111 @@ public class ShopTwoResource {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
 
-        if (!shopTwoRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
-        }
-
-        Optional<ShopTwo> result = shopTwoRepository
-            .findById(shopTwo.getId())
-            .map(existingShopTwo -> {
-                if (shopTwo.getShopName() != null) {
-                    existingShopTwo.setShopName(shopTwo.getShopName());
-                }
-                if (shopTwo.getOwner() != null) {
-                    existingShopTwo.setOwner(shopTwo.getOwner());
-                }
-                if (shopTwo.getCategory() != null) {
-                    existingShopTwo.setCategory(shopTwo.getCategory());
-                }
-                if (shopTwo.getEmail() != null) {
-                    existingShopTwo.setEmail(shopTwo.getEmail());
-                }
-
-                return existingShopTwo;
-            })
-            .map(shopTwoRepository::save);
-
         return ResponseUtil.wrapOrNotFound(
-            result,
+            shopTwoRepository.patch(shopTwo),
             HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, shopTwo.getId().toString())
         );
     }
 
     /**
-     * {@code GET  /shop-twos} : get all the shopTwos.
+     * {@code GET  /shop-twos} : get all the shopTwos, or a page of them ordered by id when {@code afterId} is given.
+     * <p>
+     * Pages are addressed by the last id of the previous page rather than by an offset, so every page costs the same
+     * index seek however deep it is. The link to the next page is given in the {@code Link} header. The first page is
+     * requested with an {@code afterId} lower than every id, e.g. {@code 0}.
      *
+     * @param afterId the id after which the page starts, or none for all the shopTwos.
+     * @param size the number of shopTwos in the page.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of shopTwos in body.
      */
     @GetMapping("/shop-twos")
-    public List<ShopTwo> getAllShopTwos() {
-        log.debug("REST request to get all ShopTwos");
-        return shopTwoRepository.findAll();
+    public ResponseEntity<List<ShopTwo>> getAllShopTwos(
+        @RequestParam(value = "afterId", required = false) Long afterId,
+        @RequestParam(value = "size", defaultValue = "20") int size
+    ) {
+        if (afterId == null) {
+            log.debug("REST request to get all ShopTwos");
+            return ResponseEntity.ok(shopTwoRepository.findAll());
+        }
+        log.debug("REST request to get a page of ShopTwos after id {}", afterId);
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestAlertException("Page size must be between 1 and " + MAX_PAGE_SIZE, ENTITY_NAME, "pagesizeinvalid");
+        }
+        List<ShopTwo> page = shopTwoRepository.findByIdGreaterThan(afterId, PageRequest.of(0, size, Sort.by(Sort.Direction.ASC, "id")));
+        HttpHeaders headers = new HttpHeaders();
+        if (page.size() == size) {
+            String next = ServletUriComponentsBuilder
+                .fromCurrentRequest()
+                .replaceQueryParam("afterId", page.get(page.size() - 1).getId())
+                .replaceQueryParam("size", size)
+                .toUriString();
+            headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return ResponseEntity.ok().headers(headers).body(page);
+    }
+
+    /**
+     * {@code GET  /shop-twos/search?fields=:fields} : get a page of the shopTwos matching the criteria.
+     * <p>
+     * Only the id and the requested fields are read from the database and written in the response; all the fields
+     * when none is requested.
+     *
+     * @param criteria the criteria which the requested entities should match.
+     * @param fields the fields of the shopTwos to return.
+     * @param pageable the pagination information.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of shopTwos in body,
+     * or with status {@code 400 (Bad Request)} if a field, a sort property or the page size is not valid.
+     */
+    @GetMapping("/shop-twos/search")
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<ShopTwoDTO>> searchShopTwos(
+        ShopTwoCriteria criteria,
+        @RequestParam(value = "fields", required = false) List<String> fields,
+        @ParameterObject Pageable pageable
+    ) {
+        log.debug("REST request to search ShopTwos by criteria: {}", criteria);
+        List<String> selected = fields != null ? fields : Collections.emptyList();
+        for (String field : selected) {
+            if (!ShopTwoQueryService.FIELDS.containsKey(field)) {
+                throw new BadRequestAlertException("Unknown field " + field, ENTITY_NAME, "fieldinvalid");
+            }
+        }
+        for (Sort.Order order : pageable.getSort()) {
+            if (!ShopTwoQueryService.FIELDS.containsKey(order.getProperty())) {
+                throw new BadRequestAlertException("Unknown sort property " + order.getProperty(), ENTITY_NAME, "sortinvalid");
+            }
+        }
+        if (pageable.isPaged() && pageable.getPageSize() > MAX_PAGE_SIZE) {
+            throw new BadRequestAlertException("Page size must be between 1 and " + MAX_PAGE_SIZE, ENTITY_NAME, "pagesizeinvalid");
+        }
+        Page<ShopTwoDTO> page = shopTwoQueryService.findByCriteria(criteria, selected, pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /shop-twos/stream} : get all the shopTwos, ordered by id, as one JSON array written while the rows are read.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of shopTwos in body.
+     */
+    @GetMapping(value = "/shop-twos/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<StreamingResponseBody> streamAllShopTwos() {
+        log.debug("REST request to stream all ShopTwos");
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                shopTwoRepository.streamAll(shopTwo -> {
+                    try {
+                        generator.writeObject(shopTwo);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     /**
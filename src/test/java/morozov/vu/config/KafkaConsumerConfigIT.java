@@ -0,0 +1,35 @@
+package morozov.vu.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+import java.nio.charset.StandardCharsets;
+import morozov.vu.IntegrationTest;
+import morozov.vu.service.kafka.InvalidPayloadForwarder;
+import morozov.vu.service.kafka.ShopTwoDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+/**
+ * Integration tests for the beans of {@link KafkaConsumerConfig}.
+ */
+@IntegrationTest
+class KafkaConsumerConfigIT {
+
+    @MockBean
+    private InvalidPayloadForwarder invalidPayloadForwarder;
+
+    @Autowired
+    private ShopTwoDeserializer shopTwoDeserializer;
+
+    @Test
+    void testTheListenerDeserializerIsErrorTolerantByDefault() {
+        byte[] payload = "not json".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(shopTwoDeserializer.deserialize("topic", payload)).isNull();
+        verify(invalidPayloadForwarder).handle(eq("topic"), any(), eq(payload), any());
+    }
+}
@@ -0,0 +1,54 @@
+package morozov.vu.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class KafkaPropertiesTest {
+
+    @Test
+    void testConsumerPropsComeFromTheProfile() {
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        kafkaProperties.setConsumerProfile(KafkaProperties.ConsumerProfile.THROUGHPUT);
+
+        Map<String, Object> props = kafkaProperties.getConsumerProps();
+
+        assertThat(props)
+            .containsEntry("fetch.min.bytes", "65536")
+            .containsEntry("fetch.max.wait.ms", "500")
+            .containsEntry("max.partition.fetch.bytes", "4194304")
+            .containsEntry("max.poll.records", "2000")
+            .containsEntry("receive.buffer.bytes", "1048576");
+        assertThat(kafkaProperties.getListenerBatchSize()).isEqualTo(2000);
+    }
+
+    @Test
+    void testRawConsumerPropsWinOverTheProfileAndListenerSettingsOverBoth() {
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        Map<String, String> consumer = new HashMap<>();
+        consumer.put("max.poll.records", "42");
+        consumer.put("fetch.min.bytes", "10");
+        kafkaProperties.setConsumer(consumer);
+        kafkaProperties.getListener().setBatchMinBytes(20);
+        kafkaProperties.getListener().setBatchMaxWait(Duration.ofMillis(50));
+
+        assertThat(kafkaProperties.getConsumerProps()).containsEntry("max.poll.records", "42").containsEntry("fetch.min.bytes", "10");
+        assertThat(kafkaProperties.getListenerConsumerProps())
+            .containsEntry("max.poll.records", "42")
+            .containsEntry("fetch.min.bytes", "20")
+            .containsEntry("fetch.max.wait.ms", "50");
+    }
+
+    @Test
+    void testRejectsInvalidListenerSettings() {
+        KafkaProperties.Listener listener = new KafkaProperties().getListener();
+
+        assertThatThrownBy(() -> listener.setBatchSize(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> listener.setBatchMinBytes(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> listener.setBatchMaxWait(Duration.ofMillis(-1))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,53 @@
+package morozov.vu.management;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class KafkaMetersServiceTests {
+
+    private static final String POLL_TO_PROCESS_METER_EXPECTED_NAME = "kafka.listener.record.poll-to-process";
+
+    private static final String COMMIT_METER_EXPECTED_NAME = "kafka.consumer.commit";
+
+    private MeterRegistry meterRegistry;
+
+    private KafkaMetersService kafkaMetersService;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+
+        kafkaMetersService = new KafkaMetersService(meterRegistry);
+    }
+
+    @Test
+    void testPollToProcessTimersAreTaggedByPartition() {
+        kafkaMetersService.recordPollToProcess(new TopicPartition("topic", 0), 10);
+        kafkaMetersService.recordPollToProcess(new TopicPartition("topic", 0), 30);
+        kafkaMetersService.recordPollToProcess(new TopicPartition("topic", 1), 5);
+
+        Timer partition0 = meterRegistry.get(POLL_TO_PROCESS_METER_EXPECTED_NAME).tag("topic", "topic").tag("partition", "0").timer();
+        Timer partition1 = meterRegistry.get(POLL_TO_PROCESS_METER_EXPECTED_NAME).tag("topic", "topic").tag("partition", "1").timer();
+
+        assertThat(partition0.count()).isEqualTo(2);
+        assertThat(partition0.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(40);
+        assertThat(partition1.count()).isEqualTo(1);
+    }
+
+    @Test
+    void testCommitTimerIsCreated() {
+        kafkaMetersService.recordCommitTime(new TopicPartition("topic", 2), TimeUnit.MILLISECONDS.toNanos(3));
+
+        Timer commit = meterRegistry.get(COMMIT_METER_EXPECTED_NAME).tag("partition", "2").timer();
+
+        assertThat(commit.count()).isEqualTo(1);
+        assertThat(commit.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(3);
+    }
+}
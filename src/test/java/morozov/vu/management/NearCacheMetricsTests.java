@@ -0,0 +1,66 @@
+package morozov.vu.management;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import com.hazelcast.map.LocalMapStats;
+import com.hazelcast.nearcache.NearCacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import morozov.vu.config.ApplicationProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class NearCacheMetricsTests {
+
+    private static final String MAP_NAME = "shopTwo";
+
+    private MeterRegistry meterRegistry;
+
+    private LocalMapStats localMapStats;
+
+    @BeforeEach
+    public void setup() {
+        HazelcastInstance hazelcastInstance = mock(HazelcastInstance.class);
+        IMap<Object, Object> map = mock(IMap.class);
+        localMapStats = mock(LocalMapStats.class);
+        when(hazelcastInstance.getMap(MAP_NAME)).thenReturn(map);
+        when(map.getLocalMapStats()).thenReturn(localMapStats);
+
+        ApplicationProperties.NearCache nearCache = new ApplicationProperties.NearCache();
+        nearCache.setMapName(MAP_NAME);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getCache().setNearCaches(List.of(nearCache));
+
+        meterRegistry = new SimpleMeterRegistry();
+        new NearCacheMetrics(hazelcastInstance, applicationProperties).bindTo(meterRegistry);
+    }
+
+    @Test
+    void testMetersReadTheNearCacheStats() {
+        NearCacheStats stats = mock(NearCacheStats.class);
+        when(stats.getHits()).thenReturn(3L);
+        when(stats.getMisses()).thenReturn(1L);
+        when(stats.getOwnedEntryCount()).thenReturn(2L);
+        when(localMapStats.getNearCacheStats()).thenReturn(stats);
+
+        assertThat(meterRegistry.get("cache.near.hits").tag("map", MAP_NAME).functionCounter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("cache.near.misses").tag("map", MAP_NAME).functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.near.hit-ratio").tag("map", MAP_NAME).gauge().value()).isEqualTo(0.75);
+        assertThat(meterRegistry.get("cache.near.entries").tag("map", MAP_NAME).gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void testMetersReadZeroBeforeTheNearCacheIsCreated() {
+        when(localMapStats.getNearCacheStats()).thenReturn(null);
+
+        assertThat(meterRegistry.get("cache.near.hits").tag("map", MAP_NAME).functionCounter().count()).isZero();
+        assertThat(meterRegistry.get("cache.near.invalidations").tag("map", MAP_NAME).functionCounter().count()).isZero();
+        assertThat(meterRegistry.get("cache.near.hit-ratio").tag("map", MAP_NAME).gauge().value()).isZero();
+        assertThat(meterRegistry.get("cache.near.entries").tag("map", MAP_NAME).gauge().value()).isZero();
+    }
+}
@@ -0,0 +1,64 @@
+package morozov.vu.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.junit.jupiter.api.Test;
+
+class PooledLoSequenceGeneratorTest {
+
+    private static final int BLOCK_SIZE = 50;
+
+    private static final long INITIAL_VALUE = 1050;
+
+    @Test
+    void testHandsOutEachIdOnceWithOneFetchPerBlock() throws InterruptedException {
+        AtomicLong sequence = new AtomicLong(INITIAL_VALUE);
+        AtomicInteger fetches = new AtomicInteger();
+        AccessCallback callback = mock(AccessCallback.class);
+        when(callback.getNextValue())
+            .thenAnswer(invocation -> {
+                fetches.incrementAndGet();
+                return new IdentifierGeneratorHelper.BasicHolder(Long.class).initialize(sequence.getAndAdd(BLOCK_SIZE));
+            });
+        DatabaseStructure databaseStructure = mock(DatabaseStructure.class);
+        when(databaseStructure.getName()).thenReturn("sequence_generator");
+        when(databaseStructure.buildCallback(any())).thenReturn(callback);
+        PooledLoSequenceGenerator generator = new PooledLoSequenceGenerator();
+        generator.initialize(databaseStructure, BLOCK_SIZE, new SimpleMeterRegistry());
+
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    if (!ids.add((Long) generator.generate(null, null))) {
+                        duplicates.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(duplicates.get()).isZero();
+        assertThat(ids).isEqualTo(LongStream.range(INITIAL_VALUE, INITIAL_VALUE + 8_000).boxed().collect(Collectors.toSet()));
+        assertThat(fetches.get()).isEqualTo(8_000 / BLOCK_SIZE);
+    }
+}
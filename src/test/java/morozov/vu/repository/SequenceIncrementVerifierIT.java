@@ -0,0 +1,31 @@
+package morozov.vu.repository;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import javax.sql.DataSource;
+import morozov.vu.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Integration tests for {@link SequenceIncrementVerifier}, against the sequence created by Liquibase.
+ */
+@IntegrationTest
+class SequenceIncrementVerifierIT {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void testAcceptsABlockSizeWithinTheIncrement() {
+        assertThatCode(() -> new SequenceIncrementVerifier(dataSource, 50).verify()).doesNotThrowAnyException();
+    }
+
+    @Test
+    void testRejectsABlockSizeExceedingTheIncrement() {
+        assertThatThrownBy(() -> new SequenceIncrementVerifier(dataSource, 51).verify())
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("exceeds the increment 50");
+    }
+}
@@ -0,0 +1,103 @@
+package morozov.vu.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import morozov.vu.IntegrationTest;
+import morozov.vu.domain.ShopTwo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for {@link ShopTwoBulkLoader}, running its {@code INSERT} and {@code MERGE} statements on H2.
+ */
+@IntegrationTest
+@Transactional
+class ShopTwoBulkLoaderIT {
+
+    @Autowired
+    private ShopTwoBulkLoader shopTwoBulkLoader;
+
+    @Autowired
+    private ShopTwoRepository shopTwoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testLoadInsertsWithIdsFromTheSequence() {
+        List<ShopTwo> shopTwos = List.of(new ShopTwo().shopName("a, \"quoted\"\nname").owner(""), new ShopTwo().shopName("b"));
+
+        assertThat(shopTwoBulkLoader.load(shopTwos)).isEqualTo(2);
+
+        assertThat(shopTwos).allSatisfy(shopTwo -> assertThat(shopTwo.getId()).isNotNull());
+        assertThat(shopName(shopTwos.get(0).getId())).isEqualTo("a, \"quoted\"\nname");
+        assertThat(jdbcTemplate.queryForObject("select owner from shop_two where id = ?", String.class, shopTwos.get(0).getId()))
+            .isEmpty();
+        assertThat(jdbcTemplate.queryForObject("select owner from shop_two where id = ?", String.class, shopTwos.get(1).getId()))
+            .isNull();
+    }
+
+    @Test
+    void testUpsertInsertsNewKeysAndUpdatesKnownOnes() {
+        shopTwoBulkLoader.upsert(byKey(1L, new ShopTwo().shopName("v1").owner("owner"), 2L, new ShopTwo().shopName("other")));
+        Long id = idOf(1L);
+
+        int written = shopTwoBulkLoader.upsert(byKey(1L, new ShopTwo().shopName("v2").owner("owner"), 3L, new ShopTwo().shopName("new")));
+
+        assertThat(written).isEqualTo(2);
+        assertThat(idOf(1L)).isEqualTo(id);
+        assertThat(shopName(id)).isEqualTo("v2");
+        assertThat(shopName(idOf(2L))).isEqualTo("other");
+        assertThat(shopName(idOf(3L))).isEqualTo("new");
+    }
+
+    @Test
+    void testUpsertReservesIdsForTheNewKeysOnly() {
+        shopTwoBulkLoader.upsert(byKey(5L, new ShopTwo().shopName("v1"), 6L, new ShopTwo().shopName("other")));
+        Long sequenceValue = sequenceValue();
+
+        shopTwoBulkLoader.upsert(byKey(5L, new ShopTwo().shopName("v2"), 6L, new ShopTwo().shopName("other v2")));
+
+        assertThat(sequenceValue()).isEqualTo(sequenceValue);
+        assertThat(shopName(idOf(5L))).isEqualTo("v2");
+    }
+
+    @Test
+    void testUpsertLeavesTheShopTwosCreatedWithoutKeyAlone() {
+        ShopTwo shopTwo = shopTwoRepository.saveAndFlush(new ShopTwo().shopName("saved"));
+
+        // A key equal to the id of an existing shopTwo must not overwrite it
+        shopTwoBulkLoader.upsert(byKey(shopTwo.getId(), new ShopTwo().shopName("upserted"), 4L, new ShopTwo().shopName("other")));
+
+        assertThat(shopName(shopTwo.getId())).isEqualTo("saved");
+        assertThat(idOf(shopTwo.getId())).isNotEqualTo(shopTwo.getId());
+        assertThat(shopName(idOf(shopTwo.getId()))).isEqualTo("upserted");
+    }
+
+    private Long sequenceValue() {
+        return jdbcTemplate.queryForObject(
+            "select current_value from information_schema.sequences where sequence_name = 'SEQUENCE_GENERATOR'",
+            Long.class
+        );
+    }
+
+    private Long idOf(Long externalKey) {
+        return jdbcTemplate.queryForObject("select id from shop_two where external_key = ?", Long.class, externalKey);
+    }
+
+    private String shopName(Long id) {
+        return jdbcTemplate.queryForObject("select shop_name from shop_two where id = ?", String.class, id);
+    }
+
+    private static Map<Long, ShopTwo> byKey(Long key, ShopTwo shopTwo, Long otherKey, ShopTwo other) {
+        Map<Long, ShopTwo> byKey = new LinkedHashMap<>();
+        byKey.put(key, shopTwo);
+        byKey.put(otherKey, other);
+        return byKey;
+    }
+}
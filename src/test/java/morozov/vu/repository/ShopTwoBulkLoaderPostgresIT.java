@@ -0,0 +1,90 @@
+package morozov.vu.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import morozov.vu.IntegrationTest;
+import morozov.vu.domain.ShopTwo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for {@link ShopTwoBulkLoader} on PostgreSQL, started by Testcontainers, running its
+ * {@code COPY} and {@code INSERT ... ON CONFLICT} statements.
+ */
+@IntegrationTest
+@ActiveProfiles("testcontainers")
+@Transactional
+class ShopTwoBulkLoaderPostgresIT {
+
+    @Autowired
+    private ShopTwoBulkLoader shopTwoBulkLoader;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testCopyLoadsQuotesCommasNewlinesEmptyStringsAndNulls() {
+        List<ShopTwo> shopTwos = Arrays.asList(
+            new ShopTwo().shopName("say \"hi\"").owner("a, b").category("line 1\nline 2").email(""),
+            new ShopTwo().shopName("\\N").owner("\"\"").category(null).email(null)
+        );
+
+        assertThat(shopTwoBulkLoader.load(shopTwos)).isEqualTo(2);
+
+        assertThat(row(shopTwos.get(0).getId())).containsExactly("say \"hi\"", "a, b", "line 1\nline 2", "");
+        assertThat(row(shopTwos.get(1).getId())).containsExactly("\\N", "\"\"", null, null);
+    }
+
+    @Test
+    void testUpsertRewritesOnlyTheChangedRows() {
+        Map<Long, ShopTwo> first = new LinkedHashMap<>();
+        first.put(1L, new ShopTwo().shopName("unchanged").owner("o, \"x\"").email(""));
+        first.put(2L, new ShopTwo().shopName("v1"));
+        assertThat(shopTwoBulkLoader.upsert(first)).isEqualTo(2);
+        Long unchangedId = idOf(1L);
+        Long changedId = idOf(2L);
+        String unchangedVersion = versionOf(1L);
+        String changedVersion = versionOf(2L);
+
+        Map<Long, ShopTwo> second = new LinkedHashMap<>();
+        second.put(1L, new ShopTwo().shopName("unchanged").owner("o, \"x\"").email(""));
+        second.put(2L, new ShopTwo().shopName("v2").owner("line 1\nline 2"));
+        second.put(3L, new ShopTwo().shopName("new"));
+
+        // The unchanged row is neither rewritten nor counted
+        assertThat(shopTwoBulkLoader.upsert(second)).isEqualTo(2);
+        assertThat(versionOf(1L)).isEqualTo(unchangedVersion);
+        assertThat(versionOf(2L)).isNotEqualTo(changedVersion);
+        assertThat(idOf(1L)).isEqualTo(unchangedId);
+        assertThat(idOf(2L)).isEqualTo(changedId);
+        assertThat(row(unchangedId)).containsExactly("unchanged", "o, \"x\"", null, "");
+        assertThat(row(changedId)).containsExactly("v2", "line 1\nline 2", null, null);
+        assertThat(row(idOf(3L))).containsExactly("new", null, null, null);
+    }
+
+    private List<String> row(Long id) {
+        return jdbcTemplate.queryForObject(
+            "select shop_name, owner, category, email from shop_two where id = ?",
+            (rs, rowNum) -> Arrays.asList(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4)),
+            id
+        );
+    }
+
+    private Long idOf(Long externalKey) {
+        return jdbcTemplate.queryForObject("select id from shop_two where external_key = ?", Long.class, externalKey);
+    }
+
+    /**
+     * The physical location of the row version: an update, even to the same values, writes a new one.
+     */
+    private String versionOf(Long externalKey) {
+        return jdbcTemplate.queryForObject("select ctid::text from shop_two where external_key = ?", String.class, externalKey);
+    }
+}
@@ -0,0 +1,66 @@
+package morozov.vu.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import morozov.vu.IntegrationTest;
+import morozov.vu.domain.ShopTwo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the lookups and the cache of {@link ShopTwoRepository}.
+ */
+@IntegrationTest
+@Transactional
+class ShopTwoRepositoryIT {
+
+    @Autowired
+    private ShopTwoRepository shopTwoRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    public void init() {
+        shopTwoRepository.saveAndFlush(new ShopTwo().shopName("Corner_Shop").owner("alice").category("food").email("corner@localhost"));
+        shopTwoRepository.saveAndFlush(new ShopTwo().shopName("corner store").owner("bob").category("food").email("store@localhost"));
+        shopTwoRepository.saveAndFlush(new ShopTwo().shopName("CornerXShop").owner("alice").category("books").email("x@localhost"));
+    }
+
+    @Test
+    void testFindByOwnerCategoryAndEmail() {
+        assertThat(shopTwoRepository.findByOwner("alice", PageRequest.of(0, 10)).getTotalElements()).isEqualTo(2);
+        assertThat(shopTwoRepository.findByCategory("food", PageRequest.of(0, 10)).getTotalElements()).isEqualTo(2);
+        assertThat(shopTwoRepository.findByEmail("store@localhost")).extracting(ShopTwo::getOwner).containsExactly("bob");
+    }
+
+    @Test
+    void testFindByShopNamePrefixIgnoresCaseAndEscapesWildcards() {
+        assertThat(shopTwoRepository.findByShopNamePrefix("CORNER", PageRequest.of(0, 10)).getTotalElements()).isEqualTo(3);
+        assertThat(shopTwoRepository.findByShopNamePrefix("corner_", PageRequest.of(0, 10)))
+            .extracting(ShopTwo::getShopName)
+            .containsExactly("Corner_Shop");
+    }
+
+    @Test
+    void testCacheEvictionWaitsForTheCommit() {
+        ShopTwo shopTwo = shopTwoRepository.findByEmail("store@localhost").get(0);
+        Cache cache = ((TransactionAwareCacheDecorator) cacheManager.getCache(ShopTwoRepository.SHOP_TWO_BY_ID_CACHE)).getTargetCache();
+        cache.put(shopTwo.getId(), shopTwo);
+
+        shopTwoRepository.saveAndFlush(shopTwo.owner("carol"));
+        assertThat(cache.get(shopTwo.getId())).isNotNull();
+
+        // The write is rolled back: the entry is still valid and stays in the cache
+        TestTransaction.end();
+        assertThat(cache.get(shopTwo.getId())).isNotNull();
+        cache.evict(shopTwo.getId());
+    }
+}
@@ -88,6 +88,48 @@ class TokenProviderTest {
         assertThat(isTokenValid).isFalse();
     }
 
+    @Test
+    void testAuthenticateReturnsTheCachedPrincipalOfAKnownToken() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+
+        Authentication first = tokenProvider.authenticate(token);
+        Authentication second = tokenProvider.authenticate(token);
+
+        assertThat(first).isNotNull();
+        assertThat(first.getName()).isEqualTo("anonymous");
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getPrincipal()).isSameAs(first.getPrincipal());
+        assertThat(second.getAuthorities()).isEqualTo(first.getAuthorities());
+    }
+
+    @Test
+    void testAuthenticateMakesRoomInAFullCache() {
+        ReflectionTestUtils.setField(tokenProvider, "authenticationCacheMaxSize", 2);
+        List<String> tokens = new ArrayList<>();
+        for (String user : List.of("first", "second", "third")) {
+            tokens.add(tokenProvider.createToken(new UsernamePasswordAuthenticationToken(user, user, Collections.emptyList()), false));
+        }
+
+        tokens.forEach(tokenProvider::authenticate);
+
+        Map<?, ?> cache = (Map<?, ?>) ReflectionTestUtils.getField(tokenProvider, "authenticationCache");
+        assertThat(cache).hasSize(2).containsKey(tokens.get(2));
+    }
+
+    @Test
+    void testAuthenticateReturnsNullWhenJWTisExpired() {
+        ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", -ONE_MINUTE);
+        String token = tokenProvider.createToken(createAuthentication(), false);
+
+        assertThat(tokenProvider.authenticate(token)).isNull();
+        assertThat(tokenProvider.authenticate(token)).isNull();
+    }
+
+    @Test
+    void testAuthenticateReturnsNullWhenJWThasInvalidSignature() {
+        assertThat(tokenProvider.authenticate(createTokenWithDifferentSignature())).isNull();
+    }
+
     @Test
     void testKeyIsSetFromSecretWhenSecretIsNotEmpty() {
         final String secret = "NwskoUmKHZtzGRKJKVjsJF7BtQMMxNWi";
@@ -0,0 +1,174 @@
+package morozov.vu.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import morozov.vu.IntegrationTest;
+import morozov.vu.config.KafkaProperties;
+import morozov.vu.domain.ShopTwo;
+import morozov.vu.management.KafkaMetersService;
+import morozov.vu.repository.ShopTwoRepository;
+import morozov.vu.service.kafka.ShopTwoSerializer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Throughput and latency benchmark of the ShopTwo consumer pipeline: {@code KafkaConsumerConfig} and
+ * {@link ConsumerService} as configured for the application, against an embedded broker and H2.
+ * <p>
+ * Run with {@code ./mvnw -Pbenchmark test}; see the README for the settings.
+ */
+@IntegrationTest
+@EmbeddedKafka(partitions = 3, topics = ConsumerPipelineBenchmark.TOPIC)
+@TestPropertySource(
+    properties = {
+        "kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "kafka.listener.topic=" + ConsumerPipelineBenchmark.TOPIC,
+        "kafka.listener.concurrency=3",
+        "management.metrics.distribution.percentiles-histogram." + KafkaMetersService.END_TO_END_LATENCY_METER_NAME + "=true",
+    }
+)
+class ConsumerPipelineBenchmark {
+
+    static final String TOPIC = "shop-two-benchmark";
+
+    private static final int DEFAULT_MESSAGES = 20_000;
+
+    private static final long TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private KafkaProperties kafkaProperties;
+
+    @Autowired
+    private ShopTwoRepository shopTwoRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    public void cleanup() {
+        shopTwoRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void benchmarkConsumerPipeline() throws Exception {
+        int messages = Integer.getInteger("benchmark.messages", DEFAULT_MESSAGES);
+        long initialRows = shopTwoRepository.count();
+
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        try (KafkaProducer<Long, ShopTwo> producer = createProducer()) {
+            for (int i = 0; i < messages; i++) {
+                ShopTwo shopTwo = new ShopTwo()
+                    .shopName("shop-" + i)
+                    .owner("owner-" + (i % 1000))
+                    .category("category-" + (i % 20))
+                    .email("shop-" + i + "@localhost");
+                producer.send(new ProducerRecord<>(TOPIC, (long) i, shopTwo));
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (shopTwoRepository.count() - initialRows < messages) {
+            assertThat(System.currentTimeMillis()).as("all the messages persisted in time").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("timestamp", Instant.now().toString());
+        result.put("messages", messages);
+        result.put("partitions", embeddedKafka.getPartitionsPerTopic());
+        result.put("concurrency", kafkaProperties.getListener().getConcurrency());
+        result.put("consumerProfile", kafkaProperties.getConsumerProfile());
+        result.put("batchSize", kafkaProperties.getListenerBatchSize());
+        result.put("parallelism", kafkaProperties.getListener().getParallelism());
+        result.put("durationMillis", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        result.put("messagesPerSecond", messages * 1e9 / elapsedNanos);
+        result.put("latencyP50Millis", endToEndPercentile(0.5));
+        result.put("latencyP99Millis", endToEndPercentile(0.99));
+        result.put("allocatedBytes", allocated);
+        result.put("allocationRateBytesPerSecond", allocated * 1e9 / elapsedNanos);
+        result.put("allocatedBytesPerMessage", allocated / messages);
+
+        Path output = Paths.get(System.getProperty("benchmark.output", "target" + File.separator + "benchmark"));
+        Files.createDirectories(output);
+        objectMapper
+            .copy()
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .writeValue(output.resolve("consumer-pipeline.json").toFile(), result);
+    }
+
+    private KafkaProducer<Long, ShopTwo> createProducer() {
+        Map<String, Object> producerProps = KafkaTestUtils.producerProps(embeddedKafka);
+        producerProps.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        return new KafkaProducer<>(producerProps, new LongSerializer(), new ShopTwoSerializer());
+    }
+
+    /**
+     * @return the end-to-end latency percentile of all the records, in milliseconds, as the upper bound of the
+     * histogram bucket holding it.
+     */
+    private double endToEndPercentile(double percentile) {
+        // Timers are per partition, and percentiles cannot be merged: their histograms, cumulative, are summed instead
+        NavigableMap<Double, Double> counts = new TreeMap<>();
+        double total = 0;
+        for (Timer timer : meterRegistry.find(KafkaMetersService.END_TO_END_LATENCY_METER_NAME).timers()) {
+            total += timer.count();
+            for (CountAtBucket bucket : timer.takeSnapshot().histogramCounts()) {
+                counts.merge(bucket.bucket(TimeUnit.MILLISECONDS), bucket.count(), Double::sum);
+            }
+        }
+        for (Map.Entry<Double, Double> bucket : counts.entrySet()) {
+            if (bucket.getValue() >= percentile * total) {
+                return bucket.getKey();
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return the bytes allocated so far by the live threads of the JVM.
+     */
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (allocated > 0) {
+                total += allocated;
+            }
+        }
+        return total;
+    }
+}
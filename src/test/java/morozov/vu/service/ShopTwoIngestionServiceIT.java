@@ -0,0 +1,84 @@
+package morozov.vu.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import morozov.vu.IntegrationTest;
+import morozov.vu.domain.ShopTwo;
+import morozov.vu.repository.ShopTwoRepository;
+import morozov.vu.service.kafka.RetryTopicPublisher;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for {@link ShopTwoIngestionService}.
+ */
+@IntegrationTest
+@Transactional
+class ShopTwoIngestionServiceIT {
+
+    private static final String TOPIC = "shops";
+
+    private static final long KEY = 42L;
+
+    @Autowired
+    private ShopTwoIngestionService shopTwoIngestionService;
+
+    @Autowired
+    private ShopTwoRepository shopTwoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ShopTwo shopTwo;
+
+    @BeforeEach
+    public void init() {
+        shopTwo = shopTwoRepository.saveAndFlush(new ShopTwo().shopName("v0").owner("owner"));
+    }
+
+    @Test
+    void testRetriedRecordDoesNotOverwriteALaterRecordOfItsKey() {
+        // v1, at offset 10, failed and went to the retry topic; v2, at offset 11, is persisted meanwhile
+        shopTwoIngestionService.ingest(List.of(mainRecord(11, version("v2"))));
+
+        shopTwoIngestionService.ingest(List.of(retriedRecord(10, version("v1"))));
+
+        assertThat(shopName()).isEqualTo("v2");
+    }
+
+    @Test
+    void testRetriedRecordIsAppliedWhenItsKeySawNoLaterRecord() {
+        shopTwoIngestionService.ingest(List.of(mainRecord(9, version("v0.9"))));
+
+        shopTwoIngestionService.ingest(List.of(retriedRecord(10, version("v1"))));
+
+        assertThat(shopName()).isEqualTo("v1");
+    }
+
+    private ShopTwo version(String shopName) {
+        return new ShopTwo().id(shopTwo.getId()).shopName(shopName).owner("owner");
+    }
+
+    private String shopName() {
+        return jdbcTemplate.queryForObject("select shop_name from shop_two where id = ?", String.class, shopTwo.getId());
+    }
+
+    private static ConsumerRecord<Long, ShopTwo> mainRecord(long offset, ShopTwo value) {
+        return new ConsumerRecord<>(TOPIC, 0, offset, KEY, value);
+    }
+
+    private static ConsumerRecord<Long, ShopTwo> retriedRecord(long originOffset, ShopTwo value) {
+        ConsumerRecord<Long, ShopTwo> record = new ConsumerRecord<>(TOPIC + RetryTopicPublisher.RETRY_TOPIC_SUFFIX + 0, 0, 0L, KEY, value);
+        record.headers().add(RetryTopicPublisher.STAGE_HEADER, "0".getBytes(StandardCharsets.UTF_8));
+        record.headers().add(RetryTopicPublisher.ORIGIN_TOPIC_HEADER, TOPIC.getBytes(StandardCharsets.UTF_8));
+        record.headers().add(RetryTopicPublisher.ORIGIN_PARTITION_HEADER, "0".getBytes(StandardCharsets.UTF_8));
+        record.headers().add(RetryTopicPublisher.ORIGIN_OFFSET_HEADER, Long.toString(originOffset).getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+}
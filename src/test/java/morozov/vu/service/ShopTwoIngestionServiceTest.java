@@ -0,0 +1,76 @@
+package morozov.vu.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import morozov.vu.config.KafkaProperties;
+import morozov.vu.domain.ShopTwo;
+import morozov.vu.repository.ShopTwoBulkLoader;
+import morozov.vu.repository.ShopTwoRepository;
+import morozov.vu.service.kafka.KeyOffsetTracker;
+import morozov.vu.service.kafka.ProcessedOffsetTracker;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class ShopTwoIngestionServiceTest {
+
+    private ShopTwoRepository shopTwoRepository;
+
+    private ShopTwoBulkLoader shopTwoBulkLoader;
+
+    private ShopTwoIngestionService ingestionService;
+
+    @BeforeEach
+    public void setup() {
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        kafkaProperties.getListener().setWriteMode(KafkaProperties.Listener.WriteMode.UPSERT);
+
+        shopTwoRepository = mock(ShopTwoRepository.class);
+        shopTwoBulkLoader = mock(ShopTwoBulkLoader.class);
+        ProcessedOffsetTracker processedOffsetTracker = mock(ProcessedOffsetTracker.class);
+        when(processedOffsetTracker.filterUnprocessed(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(processedOffsetTracker.markProcessed(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        KeyOffsetTracker keyOffsetTracker = mock(KeyOffsetTracker.class);
+        when(keyOffsetTracker.filterSuperseded(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ingestionService =
+            new ShopTwoIngestionService(shopTwoRepository, shopTwoBulkLoader, processedOffsetTracker, keyOffsetTracker, kafkaProperties);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUpsertsByKeyLastRecordWinning() {
+        ShopTwo first = new ShopTwo().shopName("first");
+        ShopTwo second = new ShopTwo().shopName("second");
+        ShopTwo other = new ShopTwo().shopName("other");
+        other.setId(99L);
+        ShopTwo created = new ShopTwo().shopName("created");
+
+        List<ShopTwo> result = ingestionService.ingest(
+            Arrays.asList(record(0, 1L, first), record(1, 2L, other), record(2, 1L, second), record(3, null, created), record(4, 3L, null))
+        );
+
+        ArgumentCaptor<Map<Long, ShopTwo>> upserted = ArgumentCaptor.forClass(Map.class);
+        verify(shopTwoBulkLoader).upsert(upserted.capture());
+        assertThat(upserted.getValue()).containsExactly(entry(1L, second), entry(2L, other));
+        assertThat(second.getId()).isNull();
+        assertThat(other.getId()).isEqualTo(99L);
+        verify(shopTwoBulkLoader).load(Arrays.asList(created));
+        verify(shopTwoRepository, never()).findById(1L);
+        assertThat(result).containsExactly(second, other, created);
+    }
+
+    private static ConsumerRecord<Long, ShopTwo> record(long offset, Long key, ShopTwo value) {
+        return new ConsumerRecord<>("shops", 0, offset, key, value);
+    }
+}
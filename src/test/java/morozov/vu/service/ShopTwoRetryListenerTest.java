@@ -0,0 +1,63 @@
+package morozov.vu.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import morozov.vu.domain.ShopTwo;
+import morozov.vu.management.KafkaMetersService;
+import morozov.vu.service.kafka.RetryTopicPublisher;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+
+class ShopTwoRetryListenerTest {
+
+    private ShopTwoIngestionService shopTwoIngestionService;
+
+    private RetryTopicPublisher retryTopicPublisher;
+
+    private ShopTwoRetryListener listener;
+
+    private Acknowledgment acknowledgment;
+
+    @BeforeEach
+    public void setup() {
+        shopTwoIngestionService = mock(ShopTwoIngestionService.class);
+        retryTopicPublisher = mock(RetryTopicPublisher.class);
+        acknowledgment = mock(Acknowledgment.class);
+        listener =
+            new ShopTwoRetryListener(0, shopTwoIngestionService, retryTopicPublisher, new KafkaMetersService(new SimpleMeterRegistry()));
+        when(shopTwoIngestionService.ingest(anyList())).thenThrow(new IllegalStateException("database down"));
+    }
+
+    @Test
+    void testAcknowledgesARecordForwardedToTheNextStage() {
+        ConsumerRecord<Long, ShopTwo> record = new ConsumerRecord<>("shops-retry-0", 0, 0L, 1L, new ShopTwo());
+
+        listener.onMessage(record, acknowledgment);
+
+        verify(retryTopicPublisher).forward(eq(record), any());
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void testRedeliversARecordWhichCannotBeForwarded() {
+        ConsumerRecord<Long, ShopTwo> record = new ConsumerRecord<>("shops-retry-0", 0, 0L, 1L, new ShopTwo());
+        doThrow(new KafkaException("broker down")).when(retryTopicPublisher).forward(eq(record), any());
+
+        listener.onMessage(record, acknowledgment);
+
+        verify(acknowledgment).nack(anyLong());
+        verify(acknowledgment, never()).acknowledge();
+    }
+}
@@ -0,0 +1,75 @@
+package morozov.vu.service.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentBloomFilterTest {
+
+    @Test
+    void testNeverForgetsAnAddedHash() {
+        ConcurrentBloomFilter filter = new ConcurrentBloomFilter(10_000, 0.01);
+        for (long offset = 0; offset < 10_000; offset++) {
+            filter.put(offset);
+        }
+
+        for (long offset = 0; offset < 10_000; offset++) {
+            assertThat(filter.mightContain(offset)).isTrue();
+        }
+    }
+
+    @Test
+    void testKeepsFalsePositivesNearTheConfiguredRate() {
+        ConcurrentBloomFilter filter = new ConcurrentBloomFilter(10_000, 0.01);
+        for (long offset = 0; offset < 10_000; offset++) {
+            filter.put(offset);
+        }
+
+        int falsePositives = 0;
+        for (long offset = 10_000; offset < 110_000; offset++) {
+            if (filter.mightContain(offset)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void testKeepsAllTheHashesAddedConcurrently() throws InterruptedException {
+        ConcurrentBloomFilter filter = new ConcurrentBloomFilter(100_000, 0.01);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            long first = thread * 25_000L;
+            executor.execute(() -> {
+                for (long offset = first; offset < first + 25_000; offset++) {
+                    filter.put(offset);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        for (long offset = 0; offset < 100_000; offset++) {
+            assertThat(filter.mightContain(offset)).isTrue();
+        }
+    }
+
+    @Test
+    void testSizesTheFilterFromTheExpectedInsertions() {
+        ConcurrentBloomFilter filter = new ConcurrentBloomFilter(1_000, 0.01);
+
+        // About 9.6 bits and 7 hashes per expected insertion for 1% false positives
+        assertThat(filter.bitCount()).isBetween(9_500L, 9_700L);
+        assertThat(filter.hashCount()).isEqualTo(7);
+    }
+
+    @Test
+    void testRejectsAnInvalidFalsePositiveRate() {
+        assertThatThrownBy(() -> new ConcurrentBloomFilter(1_000, 1.0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
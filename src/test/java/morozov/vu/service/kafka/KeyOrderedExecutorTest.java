@@ -0,0 +1,70 @@
+package morozov.vu.service.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class KeyOrderedExecutorTest {
+
+    private KeyOrderedExecutor executor;
+
+    @BeforeEach
+    public void setup() {
+        executor = new KeyOrderedExecutor(4, "test-lane-");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void testKeepsOrderOfItemsSharingAKey() {
+        List<long[]> items = new ArrayList<>();
+        for (long sequence = 0; sequence < 1000; sequence++) {
+            items.add(new long[] { sequence % 7, sequence });
+        }
+        Map<Long, List<Long>> seenByKey = new ConcurrentHashMap<>();
+
+        Optional<KeyOrderedExecutor.Failure> failure = executor.execute(
+            items,
+            item -> item[0],
+            laneItems ->
+                laneItems.forEach(item -> seenByKey.computeIfAbsent(item[0], key -> Collections.synchronizedList(new ArrayList<>())).add(item[1]))
+        );
+
+        assertThat(failure).isEmpty();
+        assertThat(seenByKey).hasSize(7);
+        seenByKey.values().forEach(sequences -> assertThat(sequences).isSorted());
+        assertThat(seenByKey.values().stream().mapToInt(List::size).sum()).isEqualTo(1000);
+    }
+
+    @Test
+    void testReportsLowestIndexOfFailedLanes() {
+        List<Long> items = Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L);
+        int failingLane = executor.laneOf(3L);
+
+        Optional<KeyOrderedExecutor.Failure> failure = executor.execute(
+            items,
+            item -> item,
+            laneItems -> {
+                if (executor.laneOf(laneItems.get(0)) == failingLane) {
+                    throw new IllegalStateException("boom");
+                }
+            }
+        );
+
+        assertThat(failure).isPresent();
+        assertThat(items.get(failure.get().getIndex())).isEqualTo(3L);
+        assertThat(failure.get().getCause()).isInstanceOf(IllegalStateException.class).hasMessage("boom");
+    }
+}
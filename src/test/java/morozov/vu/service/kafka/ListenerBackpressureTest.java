@@ -0,0 +1,106 @@
+package morozov.vu.service.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import morozov.vu.config.KafkaProperties;
+import morozov.vu.management.KafkaMetersService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+class ListenerBackpressureTest {
+
+    private static final long SLOW = Duration.ofSeconds(3).toNanos();
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+
+    private MessageListenerContainer container;
+
+    private ListenerBackpressure backpressure;
+
+    @BeforeEach
+    public void setup() {
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        kafkaProperties.getListener().setConcurrency(3);
+        kafkaProperties.getListener().setBatchSize(400);
+        kafkaProperties.getBackpressure().setMaxInFlight(1000);
+        kafkaProperties.getBackpressure().setMinChunkSize(50);
+        kafkaProperties.getBackpressure().setPauseDuration(Duration.ZERO);
+
+        container = mock(MessageListenerContainer.class);
+        KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+        when(registry.getListenerContainer("listener")).thenReturn(container);
+
+        backpressure = new ListenerBackpressure(registry, new KafkaMetersService(new SimpleMeterRegistry()), kafkaProperties, "listener");
+    }
+
+    @Test
+    void testPausesOnSlowChunkAndResumesWhenDue() {
+        backpressure.chunkPersisted(SLOW);
+        backpressure.chunkPersisted(SLOW);
+
+        verify(container, times(1)).pause();
+
+        backpressure.resumeWhenDue();
+
+        verify(container).resume();
+    }
+
+    @Test
+    void testHalvesChunksOnSlowChunkAndGrowsThemBack() {
+        assertThat(backpressure.chunkSize()).isEqualTo(400);
+
+        backpressure.chunkPersisted(SLOW);
+        backpressure.chunkPersisted(SLOW);
+        backpressure.chunkPersisted(SLOW);
+        backpressure.chunkPersisted(SLOW);
+
+        assertThat(backpressure.chunkSize()).isEqualTo(50);
+
+        backpressure.chunkPersisted(FAST);
+
+        assertThat(backpressure.chunkSize()).isEqualTo(90);
+    }
+
+    @Test
+    void testPausesWhileTooManyRecordsAreInFlight() {
+        backpressure.batchReceived(400);
+        backpressure.batchReceived(400);
+        backpressure.batchReceived(400);
+
+        verify(container).pause();
+
+        backpressure.resumeWhenDue();
+
+        verify(container, never()).resume();
+
+        backpressure.batchCompleted(400);
+        backpressure.batchCompleted(400);
+        backpressure.resumeWhenDue();
+
+        verify(container).resume();
+    }
+
+    @Test
+    void testIgnoresTheRecordsInFlightByDefault() {
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        kafkaProperties.getListener().setConcurrency(3);
+        kafkaProperties.getListener().setBatchSize(400);
+        KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+        when(registry.getListenerContainer("listener")).thenReturn(container);
+        backpressure = new ListenerBackpressure(registry, new KafkaMetersService(new SimpleMeterRegistry()), kafkaProperties, "listener");
+
+        backpressure.batchReceived(400);
+        backpressure.batchReceived(400);
+        backpressure.batchReceived(400);
+
+        verify(container, never()).pause();
+    }
+}
@@ -0,0 +1,74 @@
+package morozov.vu.service.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+import morozov.vu.config.KafkaProperties;
+import morozov.vu.repository.ProcessedOffsetRepository;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ProcessedOffsetTrackerTest {
+
+    private ProcessedOffsetRepository processedOffsetRepository;
+
+    private ProcessedOffsetTracker processedOffsetTracker;
+
+    @BeforeEach
+    public void setup() {
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        kafkaProperties.getDeduplication().setExpectedRecords(20_000);
+        processedOffsetRepository = mock(ProcessedOffsetRepository.class);
+        processedOffsetTracker = new ProcessedOffsetTracker(processedOffsetRepository, kafkaProperties);
+    }
+
+    @Test
+    void testLeavesOutTheRecordsAnotherConsumerMarked() {
+        // Offset 1 was recorded by another consumer, whose commit this filter never saw
+        when(processedOffsetRepository.markProcessed("shops", 0, List.of(0L, 1L, 2L))).thenReturn(Set.of(0L, 2L));
+        List<ConsumerRecord<Long, String>> records = List.of(record(0), record(1), record(2));
+
+        List<ConsumerRecord<Long, String>> marked = processedOffsetTracker.markProcessed(records);
+
+        assertThat(marked).containsExactly(records.get(0), records.get(2));
+        assertThat(mightBeProcessed(1)).isTrue();
+    }
+
+    @Test
+    void testRemembersThePreviousGeneration() {
+        processedOffsetTracker.remember(hashes(0, 15_000));
+
+        // 0 to 9999 filled the first generation, now the previous one
+        assertThat(LongStream.range(0, 15_000).allMatch(this::mightBeProcessed)).isTrue();
+    }
+
+    @Test
+    void testDropsTheOldestGenerationInsteadOfSaturating() {
+        processedOffsetTracker.remember(hashes(0, 10_000));
+        processedOffsetTracker.remember(hashes(10_000, 30_000));
+
+        assertThat(LongStream.range(10_000, 30_000).allMatch(this::mightBeProcessed)).isTrue();
+        long falsePositives = LongStream.range(0, 10_000).filter(this::mightBeProcessed).count();
+        long unseenFalsePositives = LongStream.range(100_000, 110_000).filter(this::mightBeProcessed).count();
+        // The dropped generation is forgotten, and the filter still answers near the configured 1%
+        assertThat(falsePositives).isLessThan(300);
+        assertThat(unseenFalsePositives).isLessThan(300);
+    }
+
+    private boolean mightBeProcessed(long offset) {
+        return processedOffsetTracker.mightBeProcessed(ProcessedOffsetTracker.hash("shops", 0, offset));
+    }
+
+    private static ConsumerRecord<Long, String> record(long offset) {
+        return new ConsumerRecord<>("shops", 0, offset, 1L, "value");
+    }
+
+    private static long[] hashes(long from, long to) {
+        return LongStream.range(from, to).map(offset -> ProcessedOffsetTracker.hash("shops", 0, offset)).toArray();
+    }
+}
@@ -0,0 +1,75 @@
+package morozov.vu.service.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import morozov.vu.config.KafkaProperties;
+import morozov.vu.management.KafkaMetersService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RetryTopicPublisherTest {
+
+    private RetryTopicPublisher retryTopicPublisher;
+
+    @BeforeEach
+    public void setup() {
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        kafkaProperties.getListener().setTopic("shops");
+        kafkaProperties.getRetry().setInitialDelay(Duration.ofSeconds(1));
+        kafkaProperties.getRetry().setMultiplier(5);
+        kafkaProperties.getRetry().setMaxDelay(Duration.ofSeconds(60));
+        retryTopicPublisher = new RetryTopicPublisher(kafkaProperties, new KafkaMetersService(new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        retryTopicPublisher.destroy();
+    }
+
+    @Test
+    void testDelayGrowsExponentiallyUpToTheMaximum() {
+        assertThat(retryTopicPublisher.delayOf(0)).isEqualTo(Duration.ofSeconds(1));
+        assertThat(retryTopicPublisher.delayOf(1)).isEqualTo(Duration.ofSeconds(5));
+        assertThat(retryTopicPublisher.delayOf(2)).isEqualTo(Duration.ofSeconds(25));
+        assertThat(retryTopicPublisher.delayOf(3)).isEqualTo(Duration.ofSeconds(60));
+    }
+
+    @Test
+    void testTopicsDeriveFromTheListenerTopic() {
+        assertThat(retryTopicPublisher.retryTopic(1)).isEqualTo("shops-retry-1");
+        assertThat(retryTopicPublisher.deadLetterTopic()).isEqualTo("shops-dlt");
+    }
+
+    @Test
+    void testReadsTheStageAndDueTimeFromTheHeaders() {
+        ConsumerRecord<Long, String> mainRecord = new ConsumerRecord<>("shops", 0, 0L, 1L, "value");
+        ConsumerRecord<Long, String> retriedRecord = new ConsumerRecord<>("shops-retry-1", 0, 0L, 1L, "value");
+        retriedRecord.headers().add(RetryTopicPublisher.STAGE_HEADER, "1".getBytes(StandardCharsets.UTF_8));
+        retriedRecord.headers().add(RetryTopicPublisher.DUE_AT_HEADER, "1234".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(RetryTopicPublisher.stageOf(mainRecord)).isEqualTo(-1);
+        assertThat(RetryTopicPublisher.stageOf(retriedRecord)).isEqualTo(1);
+        assertThat(RetryTopicPublisher.dueAt(retriedRecord)).isEqualTo(1234L);
+    }
+
+    @Test
+    void testReadsTheOriginFromTheHeadersOrTheRecord() {
+        ConsumerRecord<Long, String> mainRecord = new ConsumerRecord<>("shops", 2, 7L, 1L, "value");
+        ConsumerRecord<Long, String> retriedRecord = new ConsumerRecord<>("shops-retry-1", 0, 0L, 1L, "value");
+        retriedRecord.headers().add(RetryTopicPublisher.ORIGIN_TOPIC_HEADER, "shops".getBytes(StandardCharsets.UTF_8));
+        retriedRecord.headers().add(RetryTopicPublisher.ORIGIN_PARTITION_HEADER, "2".getBytes(StandardCharsets.UTF_8));
+        retriedRecord.headers().add(RetryTopicPublisher.ORIGIN_OFFSET_HEADER, "7".getBytes(StandardCharsets.UTF_8));
+
+        for (ConsumerRecord<Long, String> record : List.of(mainRecord, retriedRecord)) {
+            assertThat(RetryTopicPublisher.originTopic(record)).isEqualTo("shops");
+            assertThat(RetryTopicPublisher.originPartition(record)).isEqualTo(2);
+            assertThat(RetryTopicPublisher.originOffset(record)).isEqualTo(7L);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package morozov.vu.service.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.Map;
+import morozov.vu.domain.ShopTwo;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+class ShopTwoBinaryCodecTest {
+
+    private static final String TOPIC = "topic";
+
+    @Test
+    void testRoundTripsAllFields() {
+        ShopTwo shopTwo = new ShopTwo().shopName("name").owner("owner").category("caté gorie").email("email");
+        shopTwo.setId(123456789L);
+
+        ShopTwo decoded = ShopTwoBinaryCodec.decode(ShopTwoBinaryCodec.encode(shopTwo));
+
+        assertThat(decoded.getId()).isEqualTo(123456789L);
+        assertThat(decoded.getShopName()).isEqualTo("name");
+        assertThat(decoded.getOwner()).isEqualTo("owner");
+        assertThat(decoded.getCategory()).isEqualTo("caté gorie");
+        assertThat(decoded.getEmail()).isEqualTo("email");
+    }
+
+    @Test
+    void testRoundTripsMissingFields() {
+        ShopTwo decoded = ShopTwoBinaryCodec.decode(ShopTwoBinaryCodec.encode(new ShopTwo().owner("")));
+
+        assertThat(decoded.getId()).isNull();
+        assertThat(decoded.getShopName()).isNull();
+        assertThat(decoded.getOwner()).isEmpty();
+        assertThat(decoded.getEmail()).isNull();
+    }
+
+    @Test
+    void testIsSmallerThanJson() {
+        ShopTwo shopTwo = new ShopTwo().shopName("name").owner("owner").category("category").email("email");
+        shopTwo.setId(42L);
+
+        byte[] binary = ShopTwoBinaryCodec.encode(shopTwo);
+        byte[] json = new ShopTwoSerializer().serialize(TOPIC, shopTwo);
+
+        assertThat(binary.length).isLessThan(json.length / 2);
+    }
+
+    @Test
+    void testRejectsUnknownVersionAndTruncatedValues() {
+        byte[] data = ShopTwoBinaryCodec.encode(new ShopTwo().shopName("name"));
+        byte[] otherVersion = data.clone();
+        otherVersion[1] = 2;
+
+        assertThatThrownBy(() -> ShopTwoBinaryCodec.decode(otherVersion)).isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> ShopTwoBinaryCodec.decode(Arrays.copyOf(data, data.length - 1)))
+            .isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void testSerializerWritesTheFormatOfTheTopicAndDeserializerReadsBoth() {
+        ShopTwoSerializer serializer = new ShopTwoSerializer(ShopTwoWireFormat.JSON, Map.of("binary-topic", ShopTwoWireFormat.BINARY));
+        ShopTwoDeserializer deserializer = new ShopTwoDeserializer();
+        ShopTwo shopTwo = new ShopTwo().shopName("name");
+
+        byte[] binary = serializer.serialize("binary-topic", shopTwo);
+        byte[] json = serializer.serialize(TOPIC, shopTwo);
+
+        assertThat(ShopTwoBinaryCodec.isBinary(binary)).isTrue();
+        assertThat(ShopTwoBinaryCodec.isBinary(json)).isFalse();
+        assertThat(deserializer.deserialize("binary-topic", binary).getShopName()).isEqualTo("name");
+        assertThat(deserializer.deserialize(TOPIC, json).getShopName()).isEqualTo("name");
+    }
+}
@@ -0,0 +1,74 @@
+package morozov.vu.service.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import morozov.vu.domain.ShopTwo;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+class ShopTwoDeserializerTest {
+
+    private static final String TOPIC = "topic";
+
+    @Test
+    void testDeserializesAllFields() {
+        ShopTwoDeserializer deserializer = new ShopTwoDeserializer();
+
+        ShopTwo shopTwo = deserializer.deserialize(
+            TOPIC,
+            bytes("{\"id\":42,\"shopName\":\"name\",\"owner\":\"owner\",\"category\":\"category\",\"email\":\"email\"}")
+        );
+
+        assertThat(shopTwo.getId()).isEqualTo(42L);
+        assertThat(shopTwo.getShopName()).isEqualTo("name");
+        assertThat(shopTwo.getOwner()).isEqualTo("owner");
+        assertThat(shopTwo.getCategory()).isEqualTo("category");
+        assertThat(shopTwo.getEmail()).isEqualTo("email");
+    }
+
+    @Test
+    void testIgnoresUnknownAndNullFields() {
+        ShopTwoDeserializer deserializer = new ShopTwoDeserializer();
+
+        ShopTwo shopTwo = deserializer.deserialize(TOPIC, bytes("{\"id\":null,\"extra\":{\"nested\":[1,2]},\"shopName\":\"name\",\"email\":null}"));
+
+        assertThat(shopTwo.getId()).isNull();
+        assertThat(shopTwo.getShopName()).isEqualTo("name");
+        assertThat(shopTwo.getEmail()).isNull();
+    }
+
+    @Test
+    void testReturnsNullForTombstones() {
+        assertThat(new ShopTwoDeserializer().deserialize(TOPIC, null)).isNull();
+    }
+
+    @Test
+    void testFailsOnInvalidPayloadByDefault() {
+        ShopTwoDeserializer deserializer = new ShopTwoDeserializer();
+
+        assertThatThrownBy(() -> deserializer.deserialize(TOPIC, bytes("{\"shopName\":"))).isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> deserializer.deserialize(TOPIC, bytes("[1,2]"))).isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void testForwardsInvalidPayloadWhenErrorTolerant() {
+        List<byte[]> forwarded = new ArrayList<>();
+        ShopTwoDeserializer deserializer = new ShopTwoDeserializer((topic, headers, data, cause) -> forwarded.add(data));
+        deserializer.configure(Collections.singletonMap(ShopTwoDeserializer.ERROR_TOLERANT_CONFIG, "true"), false);
+        byte[] payload = bytes("not json");
+
+        ShopTwo shopTwo = deserializer.deserialize(TOPIC, payload);
+
+        assertThat(shopTwo).isNull();
+        assertThat(forwarded).containsExactly(payload);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -2,15 +2,19 @@ package morozov.vu.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import morozov.vu.config.KafkaProperties;
+import morozov.vu.service.kafka.KafkaSseBroker;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
@@ -58,17 +62,22 @@ class ConsumerKafkaResourceIT {
         consumerProps.put("client.id", "default-client");
         kafkaProperties.setConsumer(consumerProps);
 
-        ConsumerKafkaResource kafkaResource = new ConsumerKafkaResource(kafkaProperties);
+        ConsumerKafkaResource kafkaResource = new ConsumerKafkaResource(kafkaProperties, new KafkaSseBroker(kafkaProperties));
 
         restMockMvc = MockMvcBuilders.standaloneSetup(kafkaResource).build();
     }
 
     @Test
     void producesMessages() throws Exception {
-        restMockMvc
+        MvcResult mvcResult = restMockMvc
             .perform(post("/api/consumer-kafka/publish/topic-produce?message=value-produce"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restMockMvc
+            .perform(asyncDispatch(mvcResult))
             .andExpect(status().isOk())
-            .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.topic").value("topic-produce"));
 
         Map<String, Object> consumerProps = new HashMap<>(getConsumerProps("group-produce"));
         KafkaConsumer<String, String> consumer = new KafkaConsumer<>(consumerProps);
@@ -80,6 +89,36 @@ class ConsumerKafkaResourceIT {
         assertThat(record.value()).isEqualTo("value-produce");
     }
 
+    @Test
+    void producesMessagesInBulk() throws Exception {
+        MvcResult mvcResult = restMockMvc
+            .perform(
+                post("/api/consumer-kafka/publish/topic-produce-bulk/bulk")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[{\"key\":\"a\",\"message\":\"value-1\"},{\"message\":\"value-2\"}]")
+            )
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restMockMvc
+            .perform(asyncDispatch(mvcResult))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$[0].topic").value("topic-produce-bulk"))
+            .andExpect(jsonPath("$[1].offset").exists());
+
+        Map<String, Object> consumerProps = new HashMap<>(getConsumerProps("group-produce-bulk"));
+        KafkaConsumer<String, String> consumer = new KafkaConsumer<>(consumerProps);
+        consumer.subscribe(Collections.singletonList("topic-produce-bulk"));
+        List<String> values = new ArrayList<>();
+        // The first polls may return before the consumer got its partition assigned
+        for (int i = 0; i < 10 && values.size() < 2; i++) {
+            consumer.poll(Duration.ofSeconds(1)).forEach(record -> values.add(record.value()));
+        }
+        consumer.close();
+
+        assertThat(values).containsExactlyInAnyOrder("value-1", "value-2");
+    }
+
     @Test
     void consumesMessages() throws Exception {
         Map<String, Object> producerProps = new HashMap<>(getProducerProps());
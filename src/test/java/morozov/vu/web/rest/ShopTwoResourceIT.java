@@ -1,6 +1,8 @@
 package morozov.vu.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -12,6 +14,7 @@ import javax.persistence.EntityManager;
 import morozov.vu.IntegrationTest;
 import morozov.vu.domain.ShopTwo;
 import morozov.vu.repository.ShopTwoRepository;
+import morozov.vu.security.AuthoritiesConstants;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,6 +22,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -122,6 +126,100 @@ class ShopTwoResourceIT {
         assertThat(shopTwoList).hasSize(databaseSizeBeforeCreate);
     }
 
+    @Test
+    void bulkCreateShopTwos() throws Exception {
+        int databaseSizeBeforeCreate = shopTwoRepository.findAll().size();
+        ShopTwo withId = createEntity(em).id(count.incrementAndGet());
+
+        // The chunks are committed by the endpoint, outside of any test transaction
+        restShopTwoMockMvc
+            .perform(
+                post(ENTITY_API_URL + "/bulk")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(List.of(shopTwo, withId, createEntity(em))))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].status").value(contains("CREATED", "FAILED", "CREATED")))
+            .andExpect(jsonPath("$.[1].error").value("A new shopTwo cannot already have an ID"));
+
+        List<ShopTwo> shopTwoList = shopTwoRepository.findAll();
+        try {
+            assertThat(shopTwoList).hasSize(databaseSizeBeforeCreate + 2);
+        } finally {
+            shopTwoList.stream().filter(created -> DEFAULT_SHOP_NAME.equals(created.getShopName())).forEach(shopTwoRepository::delete);
+        }
+    }
+
+    @Test
+    @WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+    void importShopTwos() throws Exception {
+        int databaseSizeBeforeImport = shopTwoRepository.findAll().size();
+        ShopTwo withId = createEntity(em).id(count.incrementAndGet());
+
+        restShopTwoMockMvc
+            .perform(
+                post("/api/admin/shop-twos/import")
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .content(
+                        new String(TestUtil.convertObjectToJsonBytes(shopTwo)) +
+                        "\n" +
+                        new String(TestUtil.convertObjectToJsonBytes(withId)) +
+                        "\n" +
+                        new String(TestUtil.convertObjectToJsonBytes(createEntity(em)))
+                    )
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(3))
+            .andExpect(jsonPath("$.error").doesNotExist());
+
+        List<ShopTwo> shopTwoList = shopTwoRepository.findAll();
+        try {
+            assertThat(shopTwoList).hasSize(databaseSizeBeforeImport + 3);
+            assertThat(shopTwoList).extracting(ShopTwo::getId).doesNotHaveDuplicates().doesNotContain(withId.getId());
+        } finally {
+            shopTwoList.stream().filter(created -> DEFAULT_SHOP_NAME.equals(created.getShopName())).forEach(shopTwoRepository::delete);
+        }
+    }
+
+    @Test
+    void importShopTwosIsForAdmins() throws Exception {
+        restShopTwoMockMvc
+            .perform(post("/api/admin/shop-twos/import").contentType(MediaType.APPLICATION_NDJSON).content("{}"))
+            .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void bulkUpdateAndDeleteShopTwosFromNdjson() throws Exception {
+        shopTwoRepository.saveAndFlush(shopTwo);
+        ShopTwo updatedShopTwo = createUpdatedEntity(em).id(shopTwo.getId());
+
+        try {
+            restShopTwoMockMvc
+                .perform(
+                    put(ENTITY_API_URL + "/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(
+                            new String(TestUtil.convertObjectToJsonBytes(updatedShopTwo)) +
+                            "\n" +
+                            new String(TestUtil.convertObjectToJsonBytes(createEntity(em).id(count.incrementAndGet())))
+                        )
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].status").value(contains("UPDATED", "FAILED")));
+            assertThat(shopTwoRepository.findById(shopTwo.getId())).get().extracting(ShopTwo::getShopName).isEqualTo(UPDATED_SHOP_NAME);
+
+            restShopTwoMockMvc
+                .perform(
+                    delete(ENTITY_API_URL + "/bulk").contentType(MediaType.APPLICATION_NDJSON).content(shopTwo.getId() + "\n" + Long.MIN_VALUE)
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].status").value(contains("DELETED", "FAILED")));
+            assertThat(shopTwoRepository.existsById(shopTwo.getId())).isFalse();
+        } finally {
+            shopTwoRepository.findById(shopTwo.getId()).ifPresent(shopTwoRepository::delete);
+        }
+    }
+
     @Test
     @Transactional
     void getAllShopTwos() throws Exception {
@@ -140,6 +238,85 @@ class ShopTwoResourceIT {
             .andExpect(jsonPath("$.[*].email").value(hasItem(DEFAULT_EMAIL)));
     }
 
+    @Test
+    @Transactional
+    void getShopTwosByKeyset() throws Exception {
+        // Initialize the database
+        ShopTwo first = shopTwoRepository.saveAndFlush(createEntity(em));
+        ShopTwo second = shopTwoRepository.saveAndFlush(createEntity(em));
+
+        // A full page links to the next one
+        restShopTwoMockMvc
+            .perform(get(ENTITY_API_URL + "?afterId={afterId}&size=1", first.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(second.getId().intValue())))
+            .andExpect(header().string("Link", containsString("afterId=" + second.getId())));
+
+        // A page which is not full has no next link
+        restShopTwoMockMvc
+            .perform(get(ENTITY_API_URL + "?afterId={afterId}&size=1", Long.MAX_VALUE))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").isEmpty())
+            .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    @Transactional
+    void searchShopTwosWithSelectedFields() throws Exception {
+        // Initialize the database
+        shopTwoRepository.saveAndFlush(shopTwo);
+
+        // The name prefix ignores case, and only the id and the requested fields are returned
+        restShopTwoMockMvc
+            .perform(get(ENTITY_API_URL + "/search?shopName.startsWith=aaa&id.equals={id}&fields=shopName,email&sort=id,asc", shopTwo.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(jsonPath("$.[*].id").value(contains(shopTwo.getId().intValue())))
+            .andExpect(jsonPath("$.[0].shopName").value(DEFAULT_SHOP_NAME))
+            .andExpect(jsonPath("$.[0].email").value(DEFAULT_EMAIL))
+            .andExpect(jsonPath("$.[0].owner").doesNotExist())
+            .andExpect(jsonPath("$.[0].category").doesNotExist());
+
+        // Filters which do not match
+        restShopTwoMockMvc
+            .perform(get(ENTITY_API_URL + "/search?category.in=" + UPDATED_CATEGORY + "&id.equals={id}", shopTwo.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").isEmpty());
+        restShopTwoMockMvc
+            .perform(get(ENTITY_API_URL + "/search?owner.startsWith=" + UPDATED_OWNER + "&id.equals={id}", shopTwo.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").isEmpty());
+    }
+
+    @Test
+    void searchShopTwosWithUnknownField() throws Exception {
+        restShopTwoMockMvc.perform(get(ENTITY_API_URL + "/search?fields=password")).andExpect(status().isBadRequest());
+        restShopTwoMockMvc.perform(get(ENTITY_API_URL + "/search?sort=password,asc")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamAllShopTwos() throws Exception {
+        // Initialize the database outside of the test transaction, the stream is read on another thread
+        shopTwoRepository.saveAndFlush(shopTwo);
+
+        try {
+            MvcResult mvcResult = restShopTwoMockMvc
+                .perform(get(ENTITY_API_URL + "/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+            restShopTwoMockMvc
+                .perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(jsonPath("$.[*].id").value(hasItem(shopTwo.getId().intValue())))
+                .andExpect(jsonPath("$.[*].shopName").value(hasItem(DEFAULT_SHOP_NAME)))
+                .andExpect(jsonPath("$.[*].email").value(hasItem(DEFAULT_EMAIL)));
+        } finally {
+            shopTwoRepository.deleteById(shopTwo.getId());
+        }
+    }
+
     @Test
     @Transactional
     void getShopTwo() throws Exception {
@@ -203,14 +380,14 @@ class ShopTwoResourceIT {
         int databaseSizeBeforeUpdate = shopTwoRepository.findAll().size();
         shopTwo.setId(count.incrementAndGet());
 
-        // If the entity doesn't have an ID, it will throw BadRequestAlertException
+        // If the entity doesn't exist, nothing is updated
         restShopTwoMockMvc
             .perform(
                 put(ENTITY_API_URL_ID, shopTwo.getId())
                     .contentType(MediaType.APPLICATION_JSON)
                     .content(TestUtil.convertObjectToJsonBytes(shopTwo))
             )
-            .andExpect(status().isBadRequest());
+            .andExpect(status().isNotFound());
 
         // Validate the ShopTwo in the database
         List<ShopTwo> shopTwoList = shopTwoRepository.findAll();
@@ -273,7 +450,12 @@ class ShopTwoResourceIT {
                     .contentType("application/merge-patch+json")
                     .content(TestUtil.convertObjectToJsonBytes(partialUpdatedShopTwo))
             )
-            .andExpect(status().isOk());
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value(shopTwo.getId().intValue()))
+            .andExpect(jsonPath("$.shopName").value(DEFAULT_SHOP_NAME))
+            .andExpect(jsonPath("$.owner").value(DEFAULT_OWNER))
+            .andExpect(jsonPath("$.category").value(UPDATED_CATEGORY))
+            .andExpect(jsonPath("$.email").value(UPDATED_EMAIL));
 
         // Validate the ShopTwo in the database
         List<ShopTwo> shopTwoList = shopTwoRepository.findAll();
@@ -323,14 +505,14 @@ class ShopTwoResourceIT {
         int databaseSizeBeforeUpdate = shopTwoRepository.findAll().size();
         shopTwo.setId(count.incrementAndGet());
 
-        // If the entity doesn't have an ID, it will throw BadRequestAlertException
+        // If the entity doesn't exist, nothing is updated
         restShopTwoMockMvc
             .perform(
                 patch(ENTITY_API_URL_ID, shopTwo.getId())
                     .contentType("application/merge-patch+json")
                     .content(TestUtil.convertObjectToJsonBytes(shopTwo))
             )
-            .andExpect(status().isBadRequest());
+            .andExpect(status().isNotFound());
 
         // Validate the ShopTwo in the database
         List<ShopTwo> shopTwoList = shopTwoRepository.findAll();